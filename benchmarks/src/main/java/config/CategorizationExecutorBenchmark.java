@@ -0,0 +1,104 @@
+package config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Time to drain a burst of blocking categorizations through the executors AsyncConfig can create.
+// Each task sleeps for the simulated Claude round-trip, which unmounts a virtual thread just like socket I/O.
+// The virtual modes need a JDK 21 runtime and a -Pjava21 build.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CategorizationExecutorBenchmark {
+
+    // platform: the default pool from application.properties
+    // virtual: one virtual thread per task
+    // virtual-synchronized: virtual threads that block inside synchronized, pinning their carriers
+    @Param({"platform", "virtual", "virtual-synchronized"})
+    private String mode;
+
+    @Param({"1000"})
+    private int tasks;
+
+    @Param({"20"})
+    private int ioLatencyMs;
+
+    private AsyncTaskExecutor executor;
+
+    @Setup
+    public void setUp() {
+        if (mode.startsWith("virtual")) {
+            // The executor AsyncConfig builds, with headroom over the burst: a task's slot frees just after it
+            // counts down, and one rejection would leave the next burst waiting forever
+            SimpleAsyncTaskExecutor virtual = new AsyncConfig.RejectingAsyncTaskExecutor("categorize-", 2 * tasks);
+            virtual.setVirtualThreads(true);
+            executor = virtual;
+        } else {
+            // Same settings as categorization.async.* in application.properties
+            ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+            pool.setCorePoolSize(4);
+            pool.setMaxPoolSize(16);
+            pool.setQueueCapacity(1000);
+            pool.setThreadNamePrefix("categorize-");
+            pool.initialize();
+            executor = pool;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        } else if (executor instanceof SimpleAsyncTaskExecutor virtual) {
+            virtual.close();
+        }
+    }
+
+    @Benchmark
+    public void drainBurst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(tasks);
+        boolean pinned = mode.equals("virtual-synchronized");
+
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+                if (pinned) {
+                    Object monitor = new Object();
+                    synchronized (monitor) {
+                        simulateClaudeCall();
+                    }
+                } else {
+                    simulateClaudeCall();
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    private void simulateClaudeCall() {
+        try {
+            Thread.sleep(ioLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Closed-loop load generator for the expense API. Each worker thread sends its next request as soon as the
+// previous one completes; latencies recorded after the warm-up are reported per operation.
+public class LoadTestClient {
+
+    enum Operation {
+        CREATE, LIST, CATEGORY, SUMMARY, MONTHLY_SUMMARY
+    }
+
+    private static final String[] KNOWN_MERCHANTS = {
+            "STARBUCKS #1234", "UBER *TRIP", "AMAZON.COM*MK1234", "NETFLIX.COM", "SHELL OIL 5532",
+            "WHOLE FOODS MKT", "CVS PHARMACY #88", "VERIZON WIRELESS", "MARRIOTT HOTEL", "PLANET FITNESS"
+    };
+
+    private static final String[] CATEGORIES = {
+            "Food & Dining", "Transportation", "Shopping", "Entertainment", "Other"
+    };
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Map<Operation, Integer> mix;
+    private final int distinctDescriptions;
+    private final double knownMerchantRatio;
+
+    public LoadTestClient(String baseUrl, Map<Operation, Integer> mix, int distinctDescriptions,
+                          double knownMerchantRatio) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.distinctDescriptions = distinctDescriptions;
+        this.knownMerchantRatio = knownMerchantRatio;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Options options = new Options(args);
+        LoadTestClient client = new LoadTestClient(
+                options.get("base-url", "http://localhost:8080"),
+                parseMix(options.get("mix", "create:40,list:20,category:15,summary:15,monthly_summary:10")),
+                options.getInt("distinct-descriptions", 1000),
+                options.getDouble("known-merchant-ratio", 0.3));
+
+        Report report = client.run(
+                options.getInt("concurrency", 32),
+                Duration.ofSeconds(options.getInt("warmup-seconds", 10)),
+                Duration.ofSeconds(options.getInt("duration-seconds", 60)));
+        report.print();
+    }
+
+    public Report run(int concurrency, Duration warmup, Duration duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        preflight();
+        System.out.printf("Running %d workers against %s: %ds warm-up, %ds measured%n",
+                concurrency, baseUrl, warmup.toSeconds(), duration.toSeconds());
+
+        List<Worker> workers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(measureFrom, end);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "load-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Report report = new Report(duration);
+        workers.forEach(worker -> report.merge(worker.samples, worker.errors));
+        return report;
+    }
+
+    // One request per operation first, so a misconfigured app fails the run instead of being measured answering 404s
+    private void preflight() throws InterruptedException {
+        for (Operation operation : mix.keySet()) {
+            int status;
+            try {
+                status = send(operation);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not reach " + baseUrl + ": " + e.getMessage(), e);
+            }
+            if (!isSuccess(status)) {
+                throw new IllegalStateException(operation.name().toLowerCase(Locale.ROOT) + " answered " + status
+                        + "; is the app at " + baseUrl + " serving /api/expenses?");
+            }
+        }
+    }
+
+    private static boolean isSuccess(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    private int send(Operation operation) throws IOException, InterruptedException {
+        HttpRequest.Builder request = switch (operation) {
+            case CREATE -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/expenses"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(String.format(Locale.ROOT,
+                            "{\"description\":\"%s\",\"amount\":%.2f}",
+                            nextDescription(), 1 + ThreadLocalRandom.current().nextDouble(500))));
+            case LIST -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/expenses?limit=50"));
+            case CATEGORY -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/expenses/category/"
+                    + CATEGORIES[ThreadLocalRandom.current().nextInt(CATEGORIES.length)].replace(" ", "%20")
+                    .replace("&", "%26") + "?limit=50"));
+            case SUMMARY -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/expenses/summary"));
+            case MONTHLY_SUMMARY -> {
+                LocalDate today = LocalDate.now();
+                yield HttpRequest.newBuilder(URI.create(baseUrl + "/api/expenses/summary/monthly?year="
+                        + today.getYear() + "&month=" + today.getMonthValue()));
+            }
+        };
+
+        HttpResponse<Void> response = httpClient.send(request.timeout(Duration.ofSeconds(60)).build(),
+                HttpResponse.BodyHandlers.discarding());
+        return response.statusCode();
+    }
+
+    private String nextDescription() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < knownMerchantRatio) {
+            return KNOWN_MERCHANTS[random.nextInt(KNOWN_MERCHANTS.length)];
+        }
+        // Letters rather than digits: long digit runs are stripped when descriptions are normalized
+        int n = random.nextInt(distinctDescriptions);
+        StringBuilder name = new StringBuilder("VENDOR ");
+        do {
+            name.append((char) ('A' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return name.append(" PURCHASE").toString();
+    }
+
+    private Operation nextOperation() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty operation mix");
+    }
+
+    public static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split(":");
+            weights.put(Operation.valueOf(entry[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(entry[1].trim()));
+        }
+        return weights;
+    }
+
+    private class Worker implements Runnable {
+        private final long measureFrom;
+        private final long end;
+        private final Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+        private Worker(long measureFrom, long end) {
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < end) {
+                Operation operation = nextOperation();
+                long started = System.nanoTime();
+                boolean ok;
+                try {
+                    ok = isSuccess(send(operation));
+                } catch (IOException e) {
+                    ok = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long finished = System.nanoTime();
+
+                if (started >= measureFrom && finished <= end) {
+                    samples.computeIfAbsent(operation, o -> new Samples()).add(finished - started);
+                    if (!ok) {
+                        errors.merge(operation, 1L, Long::sum);
+                    }
+                }
+            }
+        }
+    }
+
+    static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(Samples other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        long percentile(double percentile) {
+            // Nearest-rank on a sorted copy; only called once per operation when reporting
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * size);
+            return sorted[Math.max(0, Math.min(size - 1, rank - 1))];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    public static final class Report {
+        private final Duration duration;
+        private final Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+        private Report(Duration duration) {
+            this.duration = duration;
+        }
+
+        private void merge(Map<Operation, Samples> workerSamples, Map<Operation, Long> workerErrors) {
+            workerSamples.forEach((operation, s) -> samples.computeIfAbsent(operation, o -> new Samples()).addAll(s));
+            workerErrors.forEach((operation, count) -> errors.merge(operation, count, Long::sum));
+        }
+
+        public void print() {
+            System.out.printf("%n%-16s %9s %8s %10s %10s %10s %10s %10s%n",
+                    "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+            Samples all = new Samples();
+            long allErrors = 0;
+            for (Map.Entry<Operation, Samples> entry : samples.entrySet()) {
+                long operationErrors = errors.getOrDefault(entry.getKey(), 0L);
+                printRow(entry.getKey().name().toLowerCase(Locale.ROOT), entry.getValue(), operationErrors);
+                all.addAll(entry.getValue());
+                allErrors += operationErrors;
+            }
+            if (all.size() > 0) {
+                printRow("total", all, allErrors);
+            }
+        }
+
+        private void printRow(String name, Samples s, long errorCount) {
+            System.out.printf(Locale.ROOT, "%-16s %9d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    name, s.size(), errorCount, s.size() / (double) duration.toSeconds(),
+                    s.percentile(50) / 1e6, s.percentile(99) / 1e6, s.percentile(99.9) / 1e6,
+                    s.percentile(100) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Stands in for POST /v1/messages so the app can be load-tested without a live API key. Answers the single and
+// batch categorization prompts, verbose or compact, with well-formed JSON after a configurable delay, and injects
+// 500s, 429s (with Retry-After) and 529s at configurable rates. See benchmarks/README.md for the options.
+public class StubClaudeServer {
+
+    private static final Pattern SINGLE_DESCRIPTION = Pattern.compile("Expense Description: (.*)");
+    private static final Pattern BATCH_LINE = Pattern.compile("(?m)^\\s*(\\d+)\\. Description: (.*?) \\| Amount:");
+    private static final Pattern COMPACT_SINGLE = Pattern.compile("^(.*) \\| \\$");
+    private static final Pattern COMPACT_BATCH_LINE = Pattern.compile("(?m)^(\\d+)\\|(.*)\\|\\$");
+
+    private static final String[][] CATEGORIES = {
+            {"Food & Dining", "Restaurants", "FD"},
+            {"Transportation", "Ride-sharing", "TR"},
+            {"Shopping", "Online Shopping", "SH"},
+            {"Entertainment", "Subscriptions", "EN"},
+            {"Bills & Utilities", "Internet", "BU"},
+            {"Healthcare", "Pharmacy", "HC"},
+            {"Travel", "Hotels", "TV"},
+            {"Personal Care", "Gym", "PC"},
+            {"Other", "Miscellaneous", "OT"}
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int latencyMs;
+    private final int jitterMs;
+    private final double errorRate;
+    private final double throttleRate;
+    private final double overloadRate;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong overloaded = new AtomicLong();
+
+    public StubClaudeServer(int latencyMs, int jitterMs, double errorRate, double throttleRate, double overloadRate) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        this.overloadRate = overloadRate;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+        StubClaudeServer stub = new StubClaudeServer(
+                options.getInt("latency-ms", 400),
+                options.getInt("jitter-ms", 200),
+                options.getDouble("error-rate", 0.0),
+                options.getDouble("throttle-rate", 0.0),
+                options.getDouble("overload-rate", 0.0));
+        HttpServer server = stub.start(options.getInt("port", 8089), options.getInt("threads", 512));
+
+        System.out.printf("Stub Claude API listening on http://localhost:%d/v1/messages%n",
+                server.getAddress().getPort());
+        Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stub-stats");
+            thread.setDaemon(true);
+            return thread;
+        }).scheduleAtFixedRate(stub::printStats, 10, 10, TimeUnit.SECONDS);
+    }
+
+    public HttpServer start(int port, int threads) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        // Every request sleeps for the simulated latency, so one thread per concurrent call
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.createContext("/v1/messages", this::handle);
+        server.start();
+        return server;
+    }
+
+    public void printStats() {
+        System.out.printf("requests=%d ok=%d 500=%d 429=%d 529=%d%n",
+                requests.get(), succeeded.get(), failed.get(), throttled.get(), overloaded.get());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("invalid_request_error", "Method not allowed"));
+                return;
+            }
+
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            sleep(latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextInt(jitterMs + 1) : 0));
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < throttleRate) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, error("rate_limit_error", "Number of requests has exceeded your rate limit"));
+            } else if (roll < throttleRate + overloadRate) {
+                overloaded.incrementAndGet();
+                send(exchange, 529, error("overloaded_error", "Overloaded"));
+            } else if (roll < throttleRate + overloadRate + errorRate) {
+                failed.incrementAndGet();
+                send(exchange, 500, error("api_error", "Internal server error"));
+            } else {
+                succeeded.incrementAndGet();
+                send(exchange, 200, message(request));
+            }
+        }
+    }
+
+    private ObjectNode message(JsonNode request) throws IOException {
+        String prompt = request.path("messages").path(0).path("content").asText();
+        String system = request.path("system").path(0).path("text").asText("");
+        // The compact prompt carries its instructions in the system prompt and expects short keys back
+        boolean compact = !system.isEmpty();
+
+        List<String> batchDescriptions = new ArrayList<>();
+        Matcher batchLine = (compact ? COMPACT_BATCH_LINE : BATCH_LINE).matcher(prompt);
+        while (batchLine.find()) {
+            batchDescriptions.add(batchLine.group(2));
+        }
+
+        String text;
+        if (!batchDescriptions.isEmpty()) {
+            ArrayNode items = objectMapper.createArrayNode();
+            for (int i = 0; i < batchDescriptions.size(); i++) {
+                items.add(categorization(batchDescriptions.get(i), compact).put(compact ? "i" : "index", i));
+            }
+            text = objectMapper.writeValueAsString(items);
+        } else {
+            Matcher single = (compact ? COMPACT_SINGLE : SINGLE_DESCRIPTION).matcher(prompt);
+            text = objectMapper.writeValueAsString(categorization(single.find() ? single.group(1) : prompt, compact));
+        }
+
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("id", "msg_stub_" + requests.get())
+                .put("type", "message")
+                .put("role", "assistant")
+                .put("model", request.path("model").asText("stub"))
+                .put("stop_reason", "end_turn");
+        message.putArray("content").addObject().put("type", "text").put("text", text);
+        message.putObject("usage")
+                .put("input_tokens", (system.length() + prompt.length()) / 4)
+                .put("output_tokens", text.length() / 4);
+        return message;
+    }
+
+    private ObjectNode categorization(String description, boolean compact) {
+        // Deterministic per description, so caching behaves the way it would against the real API
+        String[] category = CATEGORIES[Math.floorMod(description.trim().hashCode(), CATEGORIES.length)];
+        if (compact) {
+            return objectMapper.createObjectNode()
+                    .put("c", category[2])
+                    .put("s", category[1])
+                    .put("m", description.trim().split("\\s+")[0])
+                    .put("p", 0.9);
+        }
+        return objectMapper.createObjectNode()
+                .put("category", category[0])
+                .put("subCategory", category[1])
+                .put("merchantName", description.trim().split("\\s+")[0])
+                .put("confidenceScore", 0.9)
+                .put("reasoning", "Stub categorization");
+    }
+
+    private ObjectNode error(String type, String message) {
+        ObjectNode body = objectMapper.createObjectNode().put("type", "error");
+        body.putObject("error").put("type", type).put("message", message);
+        return body;
+    }
+
+    private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
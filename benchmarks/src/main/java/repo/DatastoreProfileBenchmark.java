@@ -0,0 +1,149 @@
+package repo;
+
+import model.CategorizationStatus;
+import model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Repository round-trips under the default profile (in-memory H2, every statement formatted and printed) and the
+// perf profile (file-backed H2, fixed Hikari pool, statement cache, SQL logging off). Each trial starts the JPA
+// layer with that profile's properties against a fresh, seeded database. The default profile prints every
+// statement, so redirect the console (-o results.txt) when running it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatastoreProfileBenchmark {
+
+    private static final String[] CATEGORIES = {
+            "Food & Dining", "Transportation", "Shopping", "Entertainment", "Bills & Utilities", "Healthcare",
+            "Travel", "Education", "Personal Care", "Home & Garden", "Gifts & Donations", "Other"
+    };
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"default", "perf"})
+    private String profile;
+
+    @Param({"20000"})
+    private int seededExpenses;
+
+    // Rows per transaction in insertChunk, as in a bulk import chunk
+    @Param({"50"})
+    private int chunkSize;
+
+    private ConfigurableApplicationContext context;
+    private ExpenseRepository expenseRepository;
+    private TransactionTemplate transactionTemplate;
+    private Path dataDir;
+    private Random random;
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Expense.class)
+    @EnableJpaRepositories(basePackageClasses = ExpenseRepository.class)
+    static class DatastoreApplication {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("expense-datastore");
+        SpringApplicationBuilder application = new SpringApplicationBuilder(DatastoreApplication.class)
+                .web(WebApplicationType.NONE);
+        if (!"default".equals(profile)) {
+            application.profiles(profile);
+        }
+        // An argument, so it outranks the profile's own expense.datastore.dir
+        context = application.run("--expense.datastore.dir=" + dataDir.toAbsolutePath());
+
+        expenseRepository = context.getBean(ExpenseRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        random = new Random(42L);
+
+        for (int seeded = 0; seeded < seededExpenses; seeded += chunkSize) {
+            insertChunk();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public List<Expense> insertChunk() {
+        List<Expense> chunk = new ArrayList<>(chunkSize);
+        for (int i = 0; i < chunkSize; i++) {
+            chunk.add(newExpense());
+        }
+        return transactionTemplate.execute(status -> expenseRepository.saveAll(chunk));
+    }
+
+    @Benchmark
+    public Expense findById() {
+        long id = 1 + random.nextInt(seededExpenses);
+        return expenseRepository.findById(id).orElse(null);
+    }
+
+    @Benchmark
+    public List<Expense> findFirstPage() {
+        return expenseRepository.findPageAfter(START.plusYears(10), Long.MAX_VALUE, Limit.of(50));
+    }
+
+    @Benchmark
+    public Object categorySummaryForMonth() {
+        LocalDateTime month = START.plusMonths(random.nextInt(24));
+        return expenseRepository.getCategorySummaryByDateRange(month, month.plusMonths(1).minusNanos(1));
+    }
+
+    private Expense newExpense() {
+        String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+        LocalDateTime date = START.plusMinutes(random.nextInt(730 * 24 * 60));
+
+        Expense expense = new Expense();
+        expense.setDescription("POS PURCHASE " + random.nextInt(10_000));
+        expense.setAmount(BigDecimal.valueOf(100 + random.nextInt(50_000), 2));
+        expense.setCategory(category);
+        expense.setSubCategory("General");
+        expense.setConfidenceScore(0.9);
+        expense.setTransactionDate(date);
+        expense.setCreatedAt(date);
+        expense.setCategorizationStatus(CategorizationStatus.CATEGORIZED);
+        return expense;
+    }
+}
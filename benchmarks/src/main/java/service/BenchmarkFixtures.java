@@ -0,0 +1,121 @@
+package service;
+
+import dto.CategoryTotal;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import model.CategorizationStatus;
+import model.Expense;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Shared synthetic data and service instances. Everything is seeded so runs are comparable.
+final class BenchmarkFixtures {
+
+    static final long SEED = 42L;
+
+    private static final String[][] MERCHANTS = {
+            {"Food & Dining", "Coffee Shop", "STARBUCKS #%d SEATTLE WA"},
+            {"Food & Dining", "Groceries", "WHOLE FOODS MKT %d"},
+            {"Transportation", "Ride-sharing", "UBER *TRIP %d"},
+            {"Transportation", "Fuel", "SHELL OIL %d"},
+            {"Shopping", "Online Shopping", "AMAZON.COM*%d"},
+            {"Shopping", "Clothing", "H&M STORE %d"},
+            {"Entertainment", "Subscriptions", "NETFLIX.COM %d"},
+            {"Bills & Utilities", "Phone", "VERIZON WIRELESS %d"},
+            {"Healthcare", "Pharmacy", "CVS PHARMACY #%d"},
+            {"Travel", "Hotels", "MARRIOTT HOTEL %d"},
+            {"Personal Care", "Gym", "PLANET FITNESS %d"},
+            {"Other", "Uncategorized", "POS PURCHASE %d"}
+    };
+
+    private BenchmarkFixtures() {
+    }
+
+    static List<Expense> expenses(int count) {
+        Random random = new Random(SEED);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        // Dates are shared instances so 10M expenses fit in a few GB of heap
+        LocalDateTime[] dates = new LocalDateTime[730];
+        for (int day = 0; day < dates.length; day++) {
+            dates[day] = start.plusDays(day).plusMinutes(random.nextInt(24 * 60));
+        }
+
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] merchant = MERCHANTS[random.nextInt(MERCHANTS.length)];
+
+            Expense expense = new Expense();
+            expense.setId((long) i + 1);
+            expense.setDescription(String.format(merchant[2], random.nextInt(10_000)));
+            expense.setAmount(BigDecimal.valueOf(100 + random.nextInt(50_000), 2));
+            expense.setCategory(merchant[0]);
+            expense.setSubCategory(merchant[1]);
+            expense.setConfidenceScore(0.9);
+            expense.setTransactionDate(dates[random.nextInt(dates.length)]);
+            expense.setCreatedAt(expense.getTransactionDate());
+            expense.setCategorizationStatus(CategorizationStatus.CATEGORIZED);
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    // The GROUP BY category the database (or rollup table) performs before generateSummary sees the data
+    static List<CategoryTotal> categoryTotals(List<Expense> expenses) {
+        Map<String, Total> totals = new HashMap<>();
+        for (Expense expense : expenses) {
+            Total total = totals.computeIfAbsent(expense.getCategory(), Total::new);
+            total.amount = total.amount.add(expense.getAmount());
+            total.expenseCount++;
+        }
+        return new ArrayList<>(totals.values());
+    }
+
+    static ClaudeAiService claudeAiService() {
+        return new ClaudeAiService(
+                new RestTemplate(),
+                new CategorizationCache(null, new SimpleMeterRegistry()),
+                new MerchantClassifier(false, 0.0, new ByteArrayResource(new byte[0])),
+                new CorrectionClassifier(null),
+                CircuitBreaker.ofDefaults("benchmark"),
+                Retry.ofDefaults("benchmark"),
+                Bulkhead.ofDefaults("benchmark"),
+                new SimpleMeterRegistry()
+        );
+    }
+
+    private static final class Total implements CategoryTotal {
+        private final String category;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long expenseCount;
+
+        private Total(String category) {
+            this.category = category;
+        }
+
+        @Override
+        public String getCategory() {
+            return category;
+        }
+
+        @Override
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        @Override
+        public long getExpenseCount() {
+            return expenseCount;
+        }
+    }
+}
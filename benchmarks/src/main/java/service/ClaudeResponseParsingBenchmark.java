@@ -0,0 +1,139 @@
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.AiCategorizationResult;
+import dto.claude.ClaudeResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Run with -prof gc and compare gc.alloc.rate.norm of the parse* methods against the *WithTree baselines,
+// which reproduce the substring-and-readTree parsing the service used to do
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClaudeResponseParsingBenchmark {
+
+    private static final int BATCH_SIZE = 20;
+
+    // Shaped like real Claude output: a sentence of preamble and a fenced JSON block
+    private static final String SINGLE_TEXT = """
+            Based on the description, this is a coffee purchase at a well-known chain.
+
+            ```json
+            {
+              "category": "Food & Dining",
+              "subCategory": "Coffee Shop",
+              "merchantName": "Starbucks",
+              "confidenceScore": 0.97,
+              "reasoning": "Starbucks is a coffee shop chain; the amount is typical for a drink and a snack."
+            }
+            ```
+            """;
+
+    // What the compact prompt asks for: bare JSON with short keys and a category code
+    private static final String COMPACT_SINGLE_TEXT =
+            "{\"c\":\"FD\",\"s\":\"Coffee Shop\",\"m\":\"Starbucks\",\"p\":0.97}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ClaudeAiService claudeAiService;
+    private ClaudeResponse singleResponse;
+    private ClaudeResponse batchResponse;
+    private ClaudeResponse compactSingleResponse;
+    private ClaudeResponse compactBatchResponse;
+
+    @Setup
+    public void setUp() {
+        claudeAiService = BenchmarkFixtures.claudeAiService();
+        singleResponse = response(SINGLE_TEXT);
+
+        StringBuilder batch = new StringBuilder("Here are the categorizations:\n[\n");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.append(String.format("""
+                      {"index": %d, "category": "Transportation", "subCategory": "Ride-sharing", \
+                    "merchantName": "Uber", "confidenceScore": 0.95, "reasoning": "Uber trip %d"}%s
+                    """, i, i, i < BATCH_SIZE - 1 ? "," : ""));
+        }
+        batchResponse = response(batch.append("]\n").toString());
+
+        compactSingleResponse = response(COMPACT_SINGLE_TEXT);
+        StringBuilder compactBatch = new StringBuilder("[");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            compactBatch.append(i > 0 ? "," : "")
+                    .append(String.format("{\"i\":%d,\"c\":\"TR\",\"s\":\"Ride-sharing\",\"m\":\"Uber\",\"p\":0.95}", i));
+        }
+        compactBatchResponse = response(compactBatch.append("]").toString());
+    }
+
+    @Benchmark
+    public AiCategorizationResult parseSingleResponse() {
+        return claudeAiService.parseCategorizationResponse(singleResponse);
+    }
+
+    @Benchmark
+    public List<AiCategorizationResult> parseBatchResponse() {
+        return claudeAiService.parseCategorizationResponse(batchResponse, BATCH_SIZE);
+    }
+
+    @Benchmark
+    public AiCategorizationResult parseCompactSingleResponse() {
+        return claudeAiService.parseCategorizationResponse(compactSingleResponse);
+    }
+
+    @Benchmark
+    public List<AiCategorizationResult> parseCompactBatchResponse() {
+        return claudeAiService.parseCategorizationResponse(compactBatchResponse, BATCH_SIZE);
+    }
+
+    @Benchmark
+    public AiCategorizationResult parseSingleResponseWithTree() throws JsonProcessingException {
+        String text = singleResponse.getContent().get(0).getText();
+        JsonNode node = objectMapper.readTree(text.substring(text.indexOf('{'), text.lastIndexOf('}') + 1));
+        return fromTree(node);
+    }
+
+    @Benchmark
+    public List<AiCategorizationResult> parseBatchResponseWithTree() throws JsonProcessingException {
+        String text = batchResponse.getContent().get(0).getText();
+        JsonNode array = objectMapper.readTree(text.substring(text.indexOf('['), text.lastIndexOf(']') + 1));
+        List<AiCategorizationResult> results = new ArrayList<>(array.size());
+        for (JsonNode item : array) {
+            results.add(fromTree(item));
+        }
+        return results;
+    }
+
+    private static AiCategorizationResult fromTree(JsonNode node) {
+        return new AiCategorizationResult(
+                node.get("category").asText(),
+                node.has("subCategory") ? node.get("subCategory").asText() : null,
+                node.has("merchantName") ? node.get("merchantName").asText() : null,
+                node.has("confidenceScore") ? node.get("confidenceScore").asDouble() : 0.5,
+                node.has("reasoning") ? node.get("reasoning").asText() : "",
+                false);
+    }
+
+    private static ClaudeResponse response(String text) {
+        ClaudeResponse response = new ClaudeResponse();
+        response.setContent(List.of(new ClaudeResponse.Content("text", text)));
+        response.setUsage(new ClaudeResponse.Usage(350, 80));
+        return response;
+    }
+}
@@ -0,0 +1,43 @@
+package service;
+
+import dto.ExpenseResponse;
+import model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    // A typical keyset page and a full listing of a modest table
+    @Param({"100", "10000"})
+    private int expenseCount;
+
+    private List<Expense> expenses;
+
+    @Setup
+    public void setUp() {
+        expenses = BenchmarkFixtures.expenses(expenseCount);
+    }
+
+    @Benchmark
+    public List<ExpenseResponse> mapToResponse() {
+        return expenses.stream().map(ExpenseService::mapToResponse).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package service;
+
+import dto.AiCategorizationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// The automaton should cost the same per description at 100 patterns as at 10k; scanBaseline, a whole-word
+// indexOf per pattern, is what it replaces and grows with the dictionary
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MerchantClassifierBenchmark {
+
+    private static final int DESCRIPTIONS = 1024;
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    @Param({"100", "10000"})
+    public int patternCount;
+
+    private MerchantClassifier classifier;
+    private List<String> patterns;
+    private String[] descriptions;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        Set<String> generated = new LinkedHashSet<>();
+        while (generated.size() < patternCount) {
+            // One to three words, like "SHELL", "UBER EATS" or "CHICK FIL A"
+            int words = 1 + random.nextInt(3);
+            StringBuilder pattern = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                pattern.append(w > 0 ? " " : "").append(word(random, 3 + random.nextInt(8)));
+            }
+            generated.add(pattern.toString());
+        }
+        patterns = new ArrayList<>(generated);
+
+        StringBuilder csv = new StringBuilder();
+        for (String pattern : patterns) {
+            csv.append(pattern).append(",Shopping,General,").append(pattern).append(",0.95\n");
+        }
+        classifier = new MerchantClassifier(true, 0.85,
+                new ByteArrayResource(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        // Card-statement shaped: half carry a known merchant, half are unknown words only
+        descriptions = new String[DESCRIPTIONS];
+        for (int i = 0; i < DESCRIPTIONS; i++) {
+            String merchant = i % 2 == 0 ? patterns.get(random.nextInt(patterns.size())) : word(random, 9);
+            descriptions[i] = "POS " + merchant + " #" + (1000 + random.nextInt(9000)) + " " + word(random, 7) + " CA";
+        }
+    }
+
+    @Benchmark
+    public void classify(Blackhole blackhole) {
+        blackhole.consume(classifier.classify(nextDescription()));
+    }
+
+    @Benchmark
+    public void scanBaseline(Blackhole blackhole) {
+        String text = CategorizationCache.normalize(nextDescription());
+        String best = null;
+        for (String pattern : patterns) {
+            if ((best == null || pattern.length() > best.length()) && containsWord(text, pattern)) {
+                best = pattern;
+            }
+        }
+        blackhole.consume(best == null ? null
+                : new AiCategorizationResult("Shopping", "General", best, 0.95, "Matched merchant rule: " + best,
+                false));
+    }
+
+    private String nextDescription() {
+        String description = descriptions[next];
+        next = (next + 1) & (DESCRIPTIONS - 1);
+        return description;
+    }
+
+    private static boolean containsWord(String text, String pattern) {
+        for (int at = text.indexOf(pattern); at >= 0; at = text.indexOf(pattern, at + 1)) {
+            int end = at + pattern.length();
+            if ((at == 0 || text.charAt(at - 1) == ' ') && (end == text.length() || text.charAt(end) == ' ')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String word(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dto.ExpenseResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "10000"})
+    private int expenseCount;
+
+    private ObjectWriter listWriter;
+    private ObjectWriter itemWriter;
+    private List<ExpenseResponse> responses;
+
+    @Setup
+    public void setUp() {
+        // Same defaults Spring MVC uses for response bodies (JavaTimeModule, ISO dates)
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, ExpenseResponse.class));
+        itemWriter = objectMapper.writerFor(ExpenseResponse.class);
+
+        responses = BenchmarkFixtures.expenses(expenseCount).stream().map(ExpenseService::mapToResponse).toList();
+    }
+
+    // GET /api/expenses as a single JSON array
+    @Benchmark
+    public void serializeJsonArray() throws IOException {
+        listWriter.writeValue(OutputStream.nullOutputStream(), responses);
+    }
+
+    // GET /api/expenses with Accept: application/x-ndjson
+    @Benchmark
+    public void serializeNdjson() throws IOException {
+        OutputStream out = OutputStream.nullOutputStream();
+        for (ExpenseResponse response : responses) {
+            out.write(itemWriter.writeValueAsBytes(response));
+            out.write('\n');
+        }
+    }
+}
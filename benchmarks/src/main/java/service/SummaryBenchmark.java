@@ -0,0 +1,40 @@
+package service;
+
+import dto.CategoryTotal;
+import dto.ExpenseSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// generateSummary alone, over the per-category totals the database or rollup table hands it. Those are
+// O(categories) whatever the size of the table, so one realistic set of totals is enough.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SummaryBenchmark {
+
+    private List<CategoryTotal> categoryTotals;
+
+    @Setup
+    public void setUp() {
+        categoryTotals = BenchmarkFixtures.categoryTotals(BenchmarkFixtures.expenses(100_000));
+    }
+
+    @Benchmark
+    public ExpenseSummary generateSummary() {
+        return ExpenseService.generateSummary(categoryTotals);
+    }
+}
@@ -1,9 +1,18 @@
 package com.roushan.ai_expense_tracker_api;
 
+import model.Expense;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import repo.ExpenseRepository;
 
-@SpringBootApplication
+// The application's packages sit beside this one rather than under it, so they are named explicitly
+@SpringBootApplication(scanBasePackages = {
+		"com.roushan.ai_expense_tracker_api", "controller", "service", "config", "exception"
+})
+@EntityScan(basePackageClasses = Expense.class)
+@EnableJpaRepositories(basePackageClasses = ExpenseRepository.class)
 public class AiExpenseTrackerApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,123 @@
+package config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Semaphore;
+
+@Configuration
+public class AsyncConfig {
+
+    @Value("${categorization.async.core-pool-size}")
+    private int corePoolSize;
+
+    @Value("${categorization.async.max-pool-size}")
+    private int maxPoolSize;
+
+    @Value("${categorization.async.queue-capacity}")
+    private int queueCapacity;
+
+    @Value("${categorization.async.virtual.max-concurrency}")
+    private int virtualMaxConcurrency;
+
+    @Value("${categorization.backfill.concurrency}")
+    private int backfillConcurrency;
+
+    @Value("${expense.events.sender-threads}")
+    private int eventSenderThreads;
+
+    @Value("${expense.events.max-subscribers}")
+    private int eventMaxSubscribers;
+
+    @Bean
+    public AsyncTaskExecutor categorizationExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // One cheap virtual thread per categorization; the Claude bulkhead and the JDBC pool still bound the
+            // real concurrency. Past max-concurrency in-flight tasks a submission is rejected, like a full queue in
+            // platform mode, and the expense falls back instead of piling up more waiting threads.
+            RejectingAsyncTaskExecutor executor = new RejectingAsyncTaskExecutor("categorize-", virtualMaxConcurrency);
+            executor.setVirtualThreads(true);
+            executor.setTaskTerminationTimeout(30_000);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("categorize-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // One thread walks the table for the active run, the others send its batches to Claude. Not waited for on
+    // shutdown: an unfinished window was never checkpointed, so the next instance simply redoes it.
+    @Bean
+    public AsyncTaskExecutor backfillExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(backfillConcurrency + 1);
+        executor.setMaxPoolSize(backfillConcurrency + 1);
+        executor.setQueueCapacity(backfillConcurrency);
+        executor.setThreadNamePrefix("backfill-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Writes events to subscribers' sockets. A subscriber has at most one send task queued, so the queue never
+    // holds more than max-subscribers. ExpenseEventPublisher grows the pool by one for each thread parked on a
+    // stalled client's socket, and shrinks it again once that write returns.
+    @Bean
+    public ThreadPoolTaskExecutor eventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(eventSenderThreads);
+        executor.setMaxPoolSize(eventSenderThreads);
+        executor.setQueueCapacity(eventMaxSubscribers);
+        executor.setThreadNamePrefix("events-");
+        executor.initialize();
+        return executor;
+    }
+
+    // SimpleAsyncTaskExecutor's own concurrency limit makes the submitting thread wait for a slot, and the submitter
+    // is the request thread in submitAfterCommit. This one rejects at the limit instead.
+    static class RejectingAsyncTaskExecutor extends SimpleAsyncTaskExecutor {
+
+        private final int maxConcurrency;
+        private final Semaphore permits;
+
+        RejectingAsyncTaskExecutor(String threadNamePrefix, int maxConcurrency) {
+            super(threadNamePrefix);
+            this.maxConcurrency = maxConcurrency;
+            this.permits = new Semaphore(maxConcurrency);
+        }
+
+        @Override
+        protected void doExecute(Runnable task) {
+            if (!permits.tryAcquire()) {
+                throw new TaskRejectedException("Executor [" + getThreadNamePrefix() + "] already runs "
+                        + maxConcurrency + " tasks, rejected " + task);
+            }
+
+            try {
+                super.doExecute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException | Error e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+}
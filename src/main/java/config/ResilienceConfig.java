@@ -0,0 +1,216 @@
+package config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalBiFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRateLimiterMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Configuration
+public class ResilienceConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ResilienceConfig.class);
+
+    private static final String CLAUDE = "claude";
+    private static final String BACKFILL = "backfill";
+
+    // 429 Too Many Requests and Anthropic's 529 Overloaded are the only responses worth retrying
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int OVERLOADED = 529;
+
+    @Value("${anthropic.resilience.circuit-breaker.failure-rate-threshold}")
+    private float failureRateThreshold;
+
+    @Value("${anthropic.resilience.circuit-breaker.slow-call-rate-threshold}")
+    private float slowCallRateThreshold;
+
+    @Value("${anthropic.resilience.circuit-breaker.slow-call-duration-ms}")
+    private long slowCallDurationMs;
+
+    @Value("${anthropic.resilience.circuit-breaker.sliding-window-size}")
+    private int slidingWindowSize;
+
+    @Value("${anthropic.resilience.circuit-breaker.minimum-calls}")
+    private int minimumCalls;
+
+    @Value("${anthropic.resilience.circuit-breaker.open-duration-seconds}")
+    private long openDurationSeconds;
+
+    @Value("${anthropic.resilience.circuit-breaker.half-open-calls}")
+    private int halfOpenCalls;
+
+    @Value("${anthropic.resilience.retry.max-attempts}")
+    private int retryMaxAttempts;
+
+    @Value("${anthropic.resilience.retry.initial-backoff-ms}")
+    private long retryInitialBackoffMs;
+
+    @Value("${anthropic.resilience.retry.max-backoff-ms}")
+    private long retryMaxBackoffMs;
+
+    @Value("${anthropic.resilience.bulkhead.max-concurrent-calls}")
+    private int bulkheadMaxConcurrentCalls;
+
+    @Value("${anthropic.resilience.bulkhead.max-wait-ms}")
+    private long bulkheadMaxWaitMs;
+
+    @Value("${categorization.backfill.max-expenses-per-second}")
+    private int backfillMaxExpensesPerSecond;
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMs))
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(Duration.ofSeconds(openDurationSeconds))
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .ignoreException(ResilienceConfig::isNotUpstreamFailure)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public CircuitBreaker claudeCircuitBreaker(CircuitBreakerRegistry registry, MeterRegistry meterRegistry) {
+        CircuitBreaker circuitBreaker = registry.circuitBreaker(CLAUDE);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            log.warn("Claude circuit breaker transition: {}", event.getStateTransition());
+            meterRegistry.counter("claude.circuitbreaker.transitions",
+                    "from", event.getStateTransition().getFromState().name(),
+                    "to", event.getStateTransition().getToState().name()
+            ).increment();
+        });
+        return circuitBreaker;
+    }
+
+    @Bean
+    public RetryRegistry retryRegistry(MeterRegistry meterRegistry) {
+        RetryRegistry registry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(retryMaxAttempts)
+                .retryOnException(ResilienceConfig::isRetryable)
+                .intervalBiFunction(retryInterval())
+                .build());
+        TaggedRetryMetrics.ofRetryRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public Retry claudeRetry(RetryRegistry registry) {
+        Retry retry = registry.retry(CLAUDE);
+        retry.getEventPublisher().onRetry(event -> log.warn("Retrying Claude call (attempt {}) in {} ms: {}",
+                event.getNumberOfRetryAttempts(), event.getWaitInterval().toMillis(),
+                event.getLastThrowable().getMessage()));
+        return retry;
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(bulkheadMaxConcurrentCalls)
+                .maxWaitDuration(Duration.ofMillis(bulkheadMaxWaitMs))
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public Bulkhead claudeBulkhead(BulkheadRegistry registry) {
+        return registry.bulkhead(CLAUDE);
+    }
+
+    @Bean
+    public RateLimiterRegistry rateLimiterRegistry(MeterRegistry meterRegistry) {
+        RateLimiterRegistry registry = RateLimiterRegistry.ofDefaults();
+        TaggedRateLimiterMetrics.ofRateLimiterRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    // One permit per expense sent to Claude by the re-categorization backfill; live traffic is never rate limited
+    @Bean
+    public RateLimiter backfillRateLimiter(RateLimiterRegistry registry) {
+        return registry.rateLimiter(BACKFILL, RateLimiterConfig.custom()
+                .limitForPeriod(backfillMaxExpensesPerSecond)
+                .limitRefreshPeriod(Duration.ofSeconds(1))
+                .timeoutDuration(Duration.ofSeconds(30))
+                .build());
+    }
+
+    // The breaker sits outside the bulkhead, so it also sees local saturation; a burst of traffic must not open it
+    // while Claude is healthy. Client errors other than 429 are our request's fault and say nothing of Claude either.
+    private static boolean isNotUpstreamFailure(Throwable throwable) {
+        return throwable instanceof BulkheadFullException
+                || (throwable instanceof HttpClientErrorException e && e.getStatusCode().value() != TOO_MANY_REQUESTS);
+    }
+
+    private static boolean isRetryable(Throwable throwable) {
+        return throwable instanceof HttpStatusCodeException e
+                && (e.getStatusCode().value() == TOO_MANY_REQUESTS || e.getStatusCode().value() == OVERLOADED);
+    }
+
+    private IntervalBiFunction<Object> retryInterval() {
+        return (attempt, outcome) -> {
+            if (outcome.isLeft() && outcome.getLeft() instanceof HttpStatusCodeException e) {
+                Long retryAfterMs = parseRetryAfter(e.getResponseHeaders());
+                if (retryAfterMs != null) {
+                    return Math.min(retryAfterMs, retryMaxBackoffMs);
+                }
+            }
+
+            // Exponential backoff with "equal jitter": half fixed, half random, so callers spread out
+            long ceiling = Math.min(retryMaxBackoffMs, retryInitialBackoffMs << Math.min(attempt - 1, 20));
+            long half = ceiling / 2;
+            return half + ThreadLocalRandom.current().nextLong(half + 1);
+        };
+    }
+
+    private static Long parseRetryAfter(HttpHeaders headers) {
+        String retryAfter = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+
+        // Retry-After is either delta-seconds or an HTTP-date
+        try {
+            return Math.max(0, Math.round(Double.parseDouble(retryAfter.trim()) * 1000));
+        } catch (NumberFormatException ignored) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+    }
+}
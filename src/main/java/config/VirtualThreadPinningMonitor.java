@@ -0,0 +1,78 @@
+package config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+// A virtual thread that blocks inside a synchronized block (or a native frame) pins its carrier thread, and
+// enough of them stall every virtual thread in the JVM. With virtual threads on, this streams the JDK's
+// jdk.VirtualThreadPinned JFR events so offending call sites show up in the log and in metrics.
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int REPORTED_FRAMES = 8;
+
+    private final Environment environment;
+    private final Counter pinnedCounter;
+
+    @Value("${virtual-threads.pinning.threshold-ms}")
+    private long thresholdMs;
+
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.pinnedCounter = meterRegistry.counter("jvm.threads.virtual.pinned");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!Threading.VIRTUAL.isActive(environment)) {
+            return;
+        }
+
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::report);
+        recording.startAsync();
+        log.info("Watching for virtual threads pinned longer than {} ms", thresholdMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void report(RecordedEvent event) {
+        pinnedCounter.increment();
+        String frames = event.getStackTrace() == null ? "(no stack trace)" : event.getStackTrace().getFrames()
+                .stream()
+                .limit(REPORTED_FRAMES)
+                .map(VirtualThreadPinningMonitor::describe)
+                .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+        log.warn("Virtual thread pinned its carrier for {} ms{}", event.getDuration().toMillis(), frames);
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -1,33 +1,56 @@
 package controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import dto.*;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import service.ExpenseService;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/expenses")
-@RequiredArgsConstructor
 @Slf4j
 @CrossOrigin(origins = "*")
 public class ExpenseController {
 
     private static final Logger log = LoggerFactory.getLogger(ExpenseService.class);
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final ExpenseService expenseService;
+    private final ObjectMapper objectMapper;
+    private final int streamFlushRows;
 
-    public ExpenseController(ExpenseService expenseService) {
+    public ExpenseController(ExpenseService expenseService, ObjectMapper objectMapper,
+                             @Value("${expense.stream.flush-rows}") int streamFlushRows) {
+        // Checked here rather than on the first streamed row, by which point the 200 is already on the wire
+        if (streamFlushRows < 1) {
+            throw new IllegalArgumentException("expense.stream.flush-rows must be at least 1");
+        }
         this.expenseService = expenseService;
+        this.objectMapper = objectMapper;
+        this.streamFlushRows = streamFlushRows;
     }
 
     @PostMapping
@@ -37,11 +60,37 @@ public class ExpenseController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON})
+    public ResponseEntity<BulkExpenseResponse> createExpensesInBulk(HttpServletRequest request) throws IOException {
+        log.info("POST /api/expenses/bulk - Importing expenses ({})", request.getContentType());
+        // A root-level JSON array and newline-delimited objects both read as a stream of ExpenseRequest,
+        // so the body is never fully materialized
+        try (MappingIterator<ExpenseRequest> requests = objectMapper.readerFor(ExpenseRequest.class)
+                .readValues(request.getInputStream())) {
+            BulkExpenseResponse response = expenseService.importExpenses(requests);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+    }
+
     @GetMapping
-    public ResponseEntity<List<ExpenseResponse>> getAllExpenses() {
+    public ResponseEntity<List<ExpenseResponse>> getAllExpenses(WebRequest request) {
         log.info("GET /api/expenses - Fetching all expenses");
-        List<ExpenseResponse> expenses = expenseService.getAllExpenses();
-        return ResponseEntity.ok(expenses);
+        return conditional(request, expenseService::getAllExpenses);
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<ExpensePage> getExpensesPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+        log.info("GET /api/expenses - Fetching page of {} expenses", limit);
+        return conditional(request, () -> expenseService.getExpensesPage(cursor, limit));
+    }
+
+    @GetMapping(produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllExpenses() {
+        log.info("GET /api/expenses - Streaming all expenses");
+        return ndjson(sink -> expenseService.streamAllExpenses(sink));
     }
 
     @GetMapping("/{id}")
@@ -52,10 +101,26 @@ public class ExpenseController {
     }
 
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<ExpenseResponse>> getExpensesByCategory(@PathVariable String category) {
+    public ResponseEntity<List<ExpenseResponse>> getExpensesByCategory(@PathVariable String category,
+                                                                       WebRequest request) {
         log.info("GET /api/expenses/category/{} - Fetching expenses by category", category);
-        List<ExpenseResponse> expenses = expenseService.getExpensesByCategory(category);
-        return ResponseEntity.ok(expenses);
+        return conditional(request, () -> expenseService.getExpensesByCategory(category));
+    }
+
+    @GetMapping(value = "/category/{category}", params = "limit")
+    public ResponseEntity<ExpensePage> getExpensesByCategoryPage(
+            @PathVariable String category,
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+        log.info("GET /api/expenses/category/{} - Fetching page of {} expenses", category, limit);
+        return conditional(request, () -> expenseService.getExpensesByCategoryPage(category, cursor, limit));
+    }
+
+    @GetMapping(value = "/category/{category}", produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamExpensesByCategory(@PathVariable String category) {
+        log.info("GET /api/expenses/category/{} - Streaming expenses by category", category);
+        return ndjson(sink -> expenseService.streamExpensesByCategory(category, sink));
     }
 
     @PutMapping("/{id}/category")
@@ -75,27 +140,85 @@ public class ExpenseController {
     }
 
     @GetMapping("/summary")
-    public ResponseEntity<ExpenseSummary> getSummary() {
+    public ResponseEntity<ExpenseSummary> getSummary(WebRequest request) {
         log.info("GET /api/expenses/summary - Generating overall summary");
-        ExpenseSummary summary = expenseService.getSummary();
-        return ResponseEntity.ok(summary);
+        return conditional(request, expenseService::getSummary);
     }
 
     @GetMapping("/summary/monthly")
     public ResponseEntity<ExpenseSummary> getMonthlySummary(
             @RequestParam int year,
-            @RequestParam int month) {
+            @RequestParam int month,
+            WebRequest request) {
         log.info("GET /api/expenses/summary/monthly - Generating monthly summary for {}/{}", month, year);
-        ExpenseSummary summary = expenseService.getMonthlySummary(year, month);
-        return ResponseEntity.ok(summary);
+        return conditional(request, () -> expenseService.getMonthlySummary(year, month));
     }
 
     @GetMapping("/date-range")
     public ResponseEntity<List<ExpenseResponse>> getExpensesByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            WebRequest request) {
         log.info("GET /api/expenses/date-range - Fetching expenses between {} and {}", startDate, endDate);
-        List<ExpenseResponse> expenses = expenseService.getExpensesByDateRange(startDate, endDate);
-        return ResponseEntity.ok(expenses);
+        return conditional(request, () -> expenseService.getExpensesByDateRange(startDate, endDate));
+    }
+
+    @GetMapping(value = "/date-range", params = "limit")
+    public ResponseEntity<ExpensePage> getExpensesByDateRangePage(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+        log.info("GET /api/expenses/date-range - Fetching page of {} expenses between {} and {}",
+                limit, startDate, endDate);
+        return conditional(request,
+                () -> expenseService.getExpensesByDateRangePage(startDate, endDate, cursor, limit));
+    }
+
+    @GetMapping(value = "/date-range", produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamExpensesByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        log.info("GET /api/expenses/date-range - Streaming expenses between {} and {}", startDate, endDate);
+        return ndjson(sink -> expenseService.streamExpensesByDateRange(startDate, endDate, sink));
+    }
+
+    private <T> ResponseEntity<T> conditional(WebRequest request, Supplier<T> body) {
+        // The tag is read before the body is built, so a write that lands in between only costs the client
+        // one more full response on its next poll, never a 304 for data it hasn't seen
+        String eTag = expenseService.getDataVersion();
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        // checkNotModified has already set the ETag header, on this response as on a 304
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(body.get());
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<ExpenseResponse>> producer) {
+        // Rows are serialized as the database cursor advances and flushed to the socket every flush-rows of them,
+        // so the client gets the first rows long before the last one is read; the tail goes out when the body ends
+        StreamingResponseBody body = outputStream -> {
+            AtomicInteger rows = new AtomicInteger();
+            producer.accept(expense ->
+                    writeLine(outputStream, expense, rows.incrementAndGet() % streamFlushRows == 0));
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+                .body(body);
+    }
+
+    private void writeLine(OutputStream outputStream, ExpenseResponse expense, boolean flush) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(expense));
+            outputStream.write('\n');
+            if (flush) {
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import service.ExpenseEventPublisher;
+
+@RestController
+@RequestMapping("/api/expenses/events")
+@CrossOrigin(origins = "*")
+public class ExpenseEventController {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseEventController.class);
+
+    private final ExpenseEventPublisher eventPublisher;
+
+    public ExpenseEventController(ExpenseEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe() {
+        log.info("GET /api/expenses/events - Subscribing to expense events");
+        return eventPublisher.subscribe()
+                .map(ResponseEntity::ok)
+                // Clients fall back to polling with If-None-Match until a slot frees up
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "30")
+                        .build());
+    }
+}
@@ -0,0 +1,57 @@
+package controller;
+
+import dto.RecategorizationRequest;
+import dto.RecategorizationRunResponse;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import service.RecategorizationBackfill;
+
+@RestController
+@RequestMapping("/api/expenses/recategorizations")
+@CrossOrigin(origins = "*")
+public class RecategorizationController {
+
+    private static final Logger log = LoggerFactory.getLogger(RecategorizationController.class);
+
+    private final RecategorizationBackfill recategorizationBackfill;
+
+    public RecategorizationController(RecategorizationBackfill recategorizationBackfill) {
+        this.recategorizationBackfill = recategorizationBackfill;
+    }
+
+    @PostMapping
+    public ResponseEntity<RecategorizationRunResponse> startRun(
+            @Valid @RequestBody(required = false) RecategorizationRequest request) {
+        log.info("POST /api/expenses/recategorizations - Starting re-categorization run");
+        RecategorizationRunResponse run = recategorizationBackfill.start(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(run);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<RecategorizationRunResponse> getRun(@PathVariable Long id) {
+        log.info("GET /api/expenses/recategorizations/{} - Fetching run", id);
+        return ResponseEntity.ok(recategorizationBackfill.getRun(id));
+    }
+
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<RecategorizationRunResponse> pauseRun(@PathVariable Long id) {
+        log.info("POST /api/expenses/recategorizations/{}/pause - Pausing run", id);
+        return ResponseEntity.ok(recategorizationBackfill.pause(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<RecategorizationRunResponse> resumeRun(@PathVariable Long id) {
+        log.info("POST /api/expenses/recategorizations/{}/resume - Resuming run", id);
+        return ResponseEntity.ok(recategorizationBackfill.resume(id));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<RecategorizationRunResponse> cancelRun(@PathVariable Long id) {
+        log.info("POST /api/expenses/recategorizations/{}/cancel - Cancelling run", id);
+        return ResponseEntity.ok(recategorizationBackfill.cancel(id));
+    }
+}
@@ -14,6 +14,7 @@ public class AiCategorizationResult {
     private String merchantName;
     private Double confidenceScore;
     private String reasoning;
+    private boolean fallback;
 
     public String getCategory() {
         return category;
@@ -54,4 +55,12 @@ public class AiCategorizationResult {
     public void setReasoning(String reasoning) {
         this.reasoning = reasoning;
     }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    public void setFallback(boolean fallback) {
+        this.fallback = fallback;
+    }
 }
\ No newline at end of file
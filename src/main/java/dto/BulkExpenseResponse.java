@@ -0,0 +1,16 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkExpenseResponse {
+
+    private int received;
+    private int created;
+    private int rejected;
+    private int fallbackCategorized;
+}
@@ -0,0 +1,13 @@
+package dto;
+
+import java.math.BigDecimal;
+
+// Spring Data projection for the GROUP BY category summary queries
+public interface CategoryTotal {
+
+    String getCategory();
+
+    BigDecimal getAmount();
+
+    long getExpenseCount();
+}
@@ -0,0 +1,22 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseEvent {
+
+    // created, category-updated, deleted or imported; also the SSE event name
+    private String type;
+
+    // The expense after the change, or as it was for deleted; null for imported, which covers a whole chunk
+    private ExpenseResponse expense;
+
+    // Applying these to the monthly and overall summaries brings them up to date without refetching
+    private List<MonthlyCategoryDelta> summaryDelta;
+}
@@ -0,0 +1,18 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpensePage {
+
+    private List<ExpenseResponse> items;
+
+    // Opaque keyset cursor for the next page; null when this is the last page
+    private String nextCursor;
+}
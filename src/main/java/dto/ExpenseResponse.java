@@ -3,6 +3,7 @@ package dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import model.CategorizationStatus;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,34 +23,5 @@ public class ExpenseResponse {
     private LocalDateTime transactionDate;
     private LocalDateTime createdAt;
     private boolean manuallyUpdated;
-
-    public void setCategory(String category) {
-    }
-
-    public void setId(Long id) {
-    }
-
-    public void setDescription(String description) {
-    }
-
-    public void setAmount(BigDecimal amount) {
-    }
-
-    public void setSubCategory(String subCategory) {
-    }
-
-    public void setMerchantName(String merchantName) {
-    }
-
-    public void setConfidenceScore(Double confidenceScore) {
-    }
-
-    public void setTransactionDate(LocalDateTime transactionDate) {
-    }
-
-    public void setCreatedAt(LocalDateTime createdAt) {
-    }
-
-    public void setManuallyUpdated(boolean manuallyUpdated) {
-    }
-}
\ No newline at end of file
+    private CategorizationStatus categorizationStatus;
+}
@@ -16,15 +16,6 @@ public class ExpenseSummary {
     private int totalExpenses;
     private List<CategorySummary> categoryBreakdown;
 
-    public void setTotalAmount(BigDecimal totalAmount) {
-    }
-
-    public void setTotalExpenses(int size) {
-    }
-
-    public void setCategoryBreakdown(List<CategorySummary> categoryBreakdown) {
-    }
-
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -33,9 +24,6 @@ public class ExpenseSummary {
         private BigDecimal amount;
         private double percentage;
 
-        public CategorySummary(String category, BigDecimal amount, double percentage) {
-        }
-
         public String getCategory() {
             return category;
         }
@@ -0,0 +1,20 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// What one change adds to a month's total for a category; negative amounts and counts take away
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlyCategoryDelta {
+
+    // As in YearMonth.toString(), e.g. 2024-03
+    private String month;
+    private String category;
+    private BigDecimal amount;
+    private long expenseCount;
+}
@@ -0,0 +1,17 @@
+package dto;
+
+import java.math.BigDecimal;
+
+// Spring Data projection for expense totals grouped by transaction month and category
+public interface MonthlyCategoryTotal {
+
+    int getTransactionYear();
+
+    int getTransactionMonth();
+
+    String getCategory();
+
+    BigDecimal getAmount();
+
+    long getExpenseCount();
+}
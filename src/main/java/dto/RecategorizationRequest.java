@@ -0,0 +1,18 @@
+package dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecategorizationRequest {
+
+    // Defaults to categorization.backfill.default-confidence-threshold when omitted
+    @DecimalMin(value = "0.0", message = "Confidence threshold must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "Confidence threshold must be between 0 and 1")
+    private Double confidenceThreshold;
+}
@@ -0,0 +1,24 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import model.RecategorizationRunStatus;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecategorizationRunResponse {
+
+    private Long id;
+    private RecategorizationRunStatus status;
+    private double confidenceThreshold;
+    private long lastExpenseId;
+    private long scanned;
+    private long recategorized;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+}
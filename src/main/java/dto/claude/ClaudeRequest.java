@@ -1,5 +1,6 @@
 package dto.claude;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -10,6 +11,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class ClaudeRequest {
 
     private String model;
@@ -17,10 +19,10 @@ public class ClaudeRequest {
     @JsonProperty("max_tokens")
     private Integer maxTokens;
 
-    private List<Message> messages;
+    // Static instructions, sent ahead of the messages so the API can cache them as a prompt prefix
+    private List<SystemBlock> system;
 
-    public <T> ClaudeRequest(String model, Integer maxTokens, List<T> ts) {
-    }
+    private List<Message> messages;
 
     @Data
     @NoArgsConstructor
@@ -28,8 +30,24 @@ public class ClaudeRequest {
     public static class Message {
         private String role;
         private String content;
+    }
 
-        public Message(String user, String prompt) {
-        }
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class SystemBlock {
+        private String type;
+        private String text;
+
+        @JsonProperty("cache_control")
+        private CacheControl cacheControl;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CacheControl {
+        private String type;
     }
-}
\ No newline at end of file
+}
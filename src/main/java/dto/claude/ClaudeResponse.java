@@ -146,6 +146,12 @@ public class ClaudeResponse {
         @JsonProperty("output_tokens")
         private Integer outputTokens;
 
+        @JsonProperty("cache_creation_input_tokens")
+        private Integer cacheCreationInputTokens;
+
+        @JsonProperty("cache_read_input_tokens")
+        private Integer cacheReadInputTokens;
+
         public Usage() {
         }
 
@@ -154,6 +160,14 @@ public class ClaudeResponse {
             this.outputTokens = outputTokens;
         }
 
+        public Usage(Integer inputTokens, Integer outputTokens, Integer cacheCreationInputTokens,
+                     Integer cacheReadInputTokens) {
+            this.inputTokens = inputTokens;
+            this.outputTokens = outputTokens;
+            this.cacheCreationInputTokens = cacheCreationInputTokens;
+            this.cacheReadInputTokens = cacheReadInputTokens;
+        }
+
         public Integer getInputTokens() {
             return inputTokens;
         }
@@ -169,5 +183,21 @@ public class ClaudeResponse {
         public void setOutputTokens(Integer outputTokens) {
             this.outputTokens = outputTokens;
         }
+
+        public Integer getCacheCreationInputTokens() {
+            return cacheCreationInputTokens;
+        }
+
+        public void setCacheCreationInputTokens(Integer cacheCreationInputTokens) {
+            this.cacheCreationInputTokens = cacheCreationInputTokens;
+        }
+
+        public Integer getCacheReadInputTokens() {
+            return cacheReadInputTokens;
+        }
+
+        public void setCacheReadInputTokens(Integer cacheReadInputTokens) {
+            this.cacheReadInputTokens = cacheReadInputTokens;
+        }
     }
 }
\ No newline at end of file
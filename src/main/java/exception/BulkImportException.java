@@ -0,0 +1,19 @@
+package exception;
+
+import dto.BulkExpenseResponse;
+
+// A bulk import body that turned malformed (or broke off) partway through. The rows read before that point are
+// already imported and can't be taken back, so the client gets how far the import got and resumes from there.
+public class BulkImportException extends RuntimeException {
+
+    private final BulkExpenseResponse imported;
+
+    public BulkImportException(BulkExpenseResponse imported, Throwable cause) {
+        super("Malformed JSON after " + imported.getReceived() + " items of the bulk import", cause);
+        this.imported = imported;
+    }
+
+    public BulkExpenseResponse getImported() {
+        return imported;
+    }
+}
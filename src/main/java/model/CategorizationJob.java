@@ -0,0 +1,51 @@
+package model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Outbox row for an expense that still needs an AI category. It is written in the same transaction as the
+// expense and deleted in the same transaction as the categorization, so neither can be lost on a crash.
+@Entity
+@Table(name = "categorization_jobs", indexes = {
+        // The claim query: due QUEUED jobs, oldest first
+        @Index(name = "idx_categorization_jobs_due", columnList = "status, available_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategorizationJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "categorization_job_seq")
+    @SequenceGenerator(name = "categorization_job_seq", sequenceName = "categorization_job_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private Long expenseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private CategorizationJobStatus status;
+
+    // Not claimable before this time: the retry backoff, or the lease of the worker holding the claim
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column
+    private String claimedBy;
+
+    // Changes on every claim; completing or releasing a job requires the current token, so a worker whose
+    // lease expired can't overwrite the result of the worker that reclaimed the job
+    @Column(length = 36)
+    private String claimToken;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
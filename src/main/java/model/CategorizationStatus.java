@@ -0,0 +1,7 @@
+package model;
+
+public enum CategorizationStatus {
+    PENDING,
+    CATEGORIZED,
+    FAILED
+}
@@ -0,0 +1,29 @@
+package model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "category_monthly_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryMonthlyRollup {
+
+    @EmbeddedId
+    private CategoryMonthlyRollupId id;
+
+    @Column(nullable = false)
+    private BigDecimal totalAmount;
+
+    @Column(nullable = false)
+    private long expenseCount;
+
+    @Column
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,23 @@
+package model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryMonthlyRollupId implements Serializable {
+
+    // ISO year-month, e.g. "2024-02"
+    @Column(name = "year_month", length = 7, nullable = false)
+    private String yearMonth;
+
+    @Column(nullable = false)
+    private String category;
+}
@@ -9,14 +9,21 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses", indexes = {
+        // Category filters and keyset pages; also lets GROUP BY category read the index in order
+        @Index(name = "idx_expenses_category_txn_date", columnList = "category, transaction_date, id"),
+        // Date-range filters, monthly summaries and the default newest-first keyset ordering
+        @Index(name = "idx_expenses_txn_date", columnList = "transaction_date, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Expense {
 
+    // SEQUENCE with a pooled allocation lets Hibernate batch inserts; IDENTITY forces one INSERT per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_seq")
+    @SequenceGenerator(name = "expense_seq", sequenceName = "expense_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -49,6 +56,10 @@ public class Expense {
     @Column
     private boolean manuallyUpdated = false;
 
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private CategorizationStatus categorizationStatus;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -149,4 +160,12 @@ public class Expense {
     public void setManuallyUpdated(boolean manuallyUpdated) {
         this.manuallyUpdated = manuallyUpdated;
     }
+
+    public CategorizationStatus getCategorizationStatus() {
+        return categorizationStatus;
+    }
+
+    public void setCategorizationStatus(CategorizationStatus categorizationStatus) {
+        this.categorizationStatus = categorizationStatus;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One re-categorization backfill over the expenses table. The row is the run's checkpoint: the scan resumes
+// after lastExpenseId, whichever instance picks it up.
+@Entity
+@Table(name = "recategorization_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecategorizationRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "recategorization_run_seq")
+    @SequenceGenerator(name = "recategorization_run_seq", sequenceName = "recategorization_run_seq", allocationSize = 1)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RecategorizationRunStatus status;
+
+    // Expenses categorized below this confidence are redone; fallback categorizations always are
+    @Column(nullable = false)
+    private double confidenceThreshold;
+
+    // Keyset cursor: every candidate with an id up to here has been processed and committed
+    @Column(nullable = false)
+    private long lastExpenseId;
+
+    @Column(nullable = false)
+    private long scanned;
+
+    @Column(nullable = false)
+    private long recategorized;
+
+    // Scans in a row that stopped at lastExpenseId because Claude answered the next candidate with the fallback
+    @Column(nullable = false)
+    private int fallbackRetries;
+
+    // TRUE while the run is RUNNING or PAUSED, NULL once it has finished. Unique, so however many start requests
+    // race, the database admits one unfinished run.
+    @Column(unique = true)
+    private Boolean active;
+
+    @Column
+    private String claimedBy;
+
+    // Changes on every claim; checkpoints require the current token, so an instance that lost the run
+    // (paused, cancelled, or taken over after its heartbeat went stale) can't move the cursor
+    @Column(length = 36)
+    private String claimToken;
+
+    @Column
+    private LocalDateTime heartbeatAt;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,8 @@
+package model;
+
+public enum RecategorizationRunStatus {
+    RUNNING,
+    PAUSED,
+    COMPLETED,
+    CANCELLED
+}
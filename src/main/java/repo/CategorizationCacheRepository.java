@@ -0,0 +1,24 @@
+package repo;
+
+import model.CategorizationCacheEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CategorizationCacheRepository extends JpaRepository<CategorizationCacheEntry, String> {
+
+    List<CategorizationCacheEntry> findByCreatedAtAfterOrderByCreatedAtDesc(LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CategorizationCacheEntry c WHERE c.createdAt < :cutoff")
+    int deleteExpiredEntries(@Param("cutoff") LocalDateTime cutoff);
+}
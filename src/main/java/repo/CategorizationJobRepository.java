@@ -0,0 +1,42 @@
+package repo;
+
+import model.CategorizationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CategorizationJobRepository extends JpaRepository<CategorizationJob, Long> {
+
+    List<CategorizationJob> findByExpenseIdIn(Collection<Long> expenseIds);
+
+    // Row locks are held until the claiming transaction commits. SKIP LOCKED makes concurrent workers, on this
+    // instance or another, pass over rows someone else is claiming instead of blocking on them or taking them too.
+    // No ORDER BY: H2 locks every matching row before sorting, which would leave nothing for other workers.
+    // The scan of idx_categorization_jobs_due already yields jobs roughly oldest first.
+    @Query(value = "SELECT * FROM categorization_jobs WHERE status = 'QUEUED' AND available_at <= :now " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<CategorizationJob> lockDueJobs(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM CategorizationJob j WHERE j.id = :id AND j.claimToken = :claimToken")
+    int deleteClaimed(@Param("id") Long id, @Param("claimToken") String claimToken);
+
+    @Modifying
+    @Query("UPDATE CategorizationJob j SET j.availableAt = :availableAt, j.claimToken = NULL, j.claimedBy = NULL " +
+            "WHERE j.id = :id AND j.claimToken = :claimToken")
+    int releaseClaimed(@Param("id") Long id, @Param("claimToken") String claimToken,
+                       @Param("availableAt") LocalDateTime availableAt);
+
+    @Modifying
+    @Query("UPDATE CategorizationJob j SET j.status = model.CategorizationJobStatus.FAILED, j.claimToken = NULL " +
+            "WHERE j.id = :id AND j.claimToken = :claimToken")
+    int failClaimed(@Param("id") Long id, @Param("claimToken") String claimToken);
+}
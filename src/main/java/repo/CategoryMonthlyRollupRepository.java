@@ -0,0 +1,58 @@
+package repo;
+
+import dto.CategoryTotal;
+import model.CategoryMonthlyRollup;
+import model.CategoryMonthlyRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface CategoryMonthlyRollupRepository extends JpaRepository<CategoryMonthlyRollup, CategoryMonthlyRollupId> {
+
+    @Query("SELECT r.id.category AS category, SUM(r.totalAmount) AS amount, SUM(r.expenseCount) AS expenseCount " +
+            "FROM CategoryMonthlyRollup r GROUP BY r.id.category HAVING SUM(r.expenseCount) > 0")
+    List<CategoryTotal> getCategorySummary();
+
+    @Query("SELECT r.id.category AS category, r.totalAmount AS amount, r.expenseCount AS expenseCount " +
+            "FROM CategoryMonthlyRollup r WHERE r.id.yearMonth = :yearMonth AND r.expenseCount > 0")
+    List<CategoryTotal> getCategorySummaryByYearMonth(@Param("yearMonth") String yearMonth);
+
+    // Returns the number of rows updated; 0 means no row exists yet for this (month, category)
+    @Modifying
+    @Query(value = "UPDATE category_monthly_rollups SET total_amount = total_amount + :amount, " +
+            "expense_count = expense_count + :count, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE year_month = :yearMonth AND category = :category",
+            nativeQuery = true)
+    int applyDelta(@Param("yearMonth") String yearMonth,
+                   @Param("category") String category,
+                   @Param("amount") BigDecimal amount,
+                   @Param("count") long count);
+
+    // Both return 0 when the row no longer holds the seen values, i.e. a write changed it after it was read
+    @Modifying
+    @Query(value = "UPDATE category_monthly_rollups SET total_amount = :amount, expense_count = :count, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE year_month = :yearMonth AND category = :category " +
+            "AND total_amount = :seenAmount AND expense_count = :seenCount",
+            nativeQuery = true)
+    int repair(@Param("yearMonth") String yearMonth,
+               @Param("category") String category,
+               @Param("amount") BigDecimal amount,
+               @Param("count") long count,
+               @Param("seenAmount") BigDecimal seenAmount,
+               @Param("seenCount") long seenCount);
+
+    @Modifying
+    @Query(value = "DELETE FROM category_monthly_rollups WHERE year_month = :yearMonth AND category = :category " +
+            "AND total_amount = :seenAmount AND expense_count = :seenCount",
+            nativeQuery = true)
+    int deleteUnchanged(@Param("yearMonth") String yearMonth,
+                        @Param("category") String category,
+                        @Param("seenAmount") BigDecimal seenAmount,
+                        @Param("seenCount") long seenCount);
+}
@@ -1,13 +1,20 @@
 package repo;
 
+import dto.CategoryTotal;
+import dto.MonthlyCategoryTotal;
+import jakarta.persistence.QueryHint;
 import model.Expense;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ExpenseRepository extends JpaRepository<Expense, Long> {
@@ -16,16 +23,87 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
 
     List<Expense> findByTransactionDateBetween(LocalDateTime startDate, LocalDateTime endDate);
 
+    List<Expense> findByManuallyUpdatedTrue();
+
     @Query("SELECT e FROM Expense e WHERE e.transactionDate >= :startDate AND e.transactionDate <= :endDate")
     List<Expense> findExpensesByDateRange(@Param("startDate") LocalDateTime startDate,
                                           @Param("endDate") LocalDateTime endDate);
 
-    @Query("SELECT e.category, SUM(e.amount) FROM Expense e GROUP BY e.category")
-    List<Object[]> getCategorySummary();
+    @Query("SELECT e.category AS category, SUM(e.amount) AS amount, COUNT(e) AS expenseCount " +
+            "FROM Expense e GROUP BY e.category")
+    List<CategoryTotal> getCategorySummary();
 
-    @Query("SELECT e.category, SUM(e.amount) FROM Expense e " +
+    @Query("SELECT e.category AS category, SUM(e.amount) AS amount, COUNT(e) AS expenseCount FROM Expense e " +
             "WHERE e.transactionDate >= :startDate AND e.transactionDate <= :endDate " +
             "GROUP BY e.category")
-    List<Object[]> getCategorySummaryByDateRange(@Param("startDate") LocalDateTime startDate,
+    List<CategoryTotal> getCategorySummaryByDateRange(@Param("startDate") LocalDateTime startDate,
                                                  @Param("endDate") LocalDateTime endDate);
-}
\ No newline at end of file
+
+    @Query("SELECT YEAR(e.transactionDate) AS transactionYear, MONTH(e.transactionDate) AS transactionMonth, " +
+            "e.category AS category, SUM(e.amount) AS amount, COUNT(e) AS expenseCount FROM Expense e " +
+            "GROUP BY YEAR(e.transactionDate), MONTH(e.transactionDate), e.category")
+    List<MonthlyCategoryTotal> getMonthlyCategorySummary();
+
+    // Keyset pagination, newest first: rows strictly after the (transactionDate, id) cursor.
+    // The leading <= gives the planner a range on transaction_date instead of an OR it cannot index.
+    String KEYSET_AFTER_CURSOR =
+            "e.transactionDate <= :cursorDate AND (e.transactionDate < :cursorDate OR e.id < :cursorId)";
+
+    @Query("SELECT e FROM Expense e " +
+            "WHERE " + KEYSET_AFTER_CURSOR + " " +
+            "ORDER BY e.transactionDate DESC, e.id DESC")
+    List<Expense> findPageAfter(@Param("cursorDate") LocalDateTime cursorDate,
+                                @Param("cursorId") Long cursorId,
+                                Limit limit);
+
+    @Query("SELECT e FROM Expense e WHERE e.category = :category " +
+            "AND " + KEYSET_AFTER_CURSOR + " " +
+            "ORDER BY e.transactionDate DESC, e.id DESC")
+    List<Expense> findPageByCategoryAfter(@Param("category") String category,
+                                          @Param("cursorDate") LocalDateTime cursorDate,
+                                          @Param("cursorId") Long cursorId,
+                                          Limit limit);
+
+    @Query("SELECT e FROM Expense e WHERE e.transactionDate >= :startDate AND e.transactionDate <= :endDate " +
+            "AND " + KEYSET_AFTER_CURSOR + " " +
+            "ORDER BY e.transactionDate DESC, e.id DESC")
+    List<Expense> findPageByDateRangeAfter(@Param("startDate") LocalDateTime startDate,
+                                           @Param("endDate") LocalDateTime endDate,
+                                           @Param("cursorDate") LocalDateTime cursorDate,
+                                           @Param("cursorId") Long cursorId,
+                                           Limit limit);
+
+    // Re-categorization backfill: keyset over the primary key, so each window is a range scan from the checkpoint.
+    // Pending rows have no confidence yet and never match; the outbox owns them.
+    @Query("SELECT e FROM Expense e WHERE e.id > :afterId AND e.manuallyUpdated = false " +
+            "AND (e.categorizationStatus = model.CategorizationStatus.FAILED OR e.confidenceScore < :threshold) " +
+            "ORDER BY e.id")
+    List<Expense> findRecategorizationCandidates(@Param("afterId") long afterId,
+                                                 @Param("threshold") double threshold,
+                                                 Limit limit);
+
+    // Streaming reads; callers must consume inside a transaction and close the stream
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e ORDER BY e.transactionDate DESC, e.id DESC")
+    Stream<Expense> streamAll();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e WHERE e.category = :category ORDER BY e.transactionDate DESC, e.id DESC")
+    Stream<Expense> streamByCategory(@Param("category") String category);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e WHERE e.transactionDate >= :startDate AND e.transactionDate <= :endDate " +
+            "ORDER BY e.transactionDate DESC, e.id DESC")
+    Stream<Expense> streamByDateRange(@Param("startDate") LocalDateTime startDate,
+                                      @Param("endDate") LocalDateTime endDate);
+}
@@ -0,0 +1,61 @@
+package repo;
+
+import model.RecategorizationRun;
+import model.RecategorizationRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RecategorizationRunRepository extends JpaRepository<RecategorizationRun, Long> {
+
+    boolean existsByStatusIn(Collection<RecategorizationRunStatus> statuses);
+
+    List<RecategorizationRun> findByStatus(RecategorizationRunStatus status);
+
+    // A RUNNING run is up for grabs when nobody holds it, or its holder stopped sending heartbeats
+    @Modifying
+    @Query("UPDATE RecategorizationRun r SET r.claimedBy = :claimedBy, r.claimToken = :claimToken, " +
+            "r.heartbeatAt = :now WHERE r.id = :id AND r.status = model.RecategorizationRunStatus.RUNNING " +
+            "AND (r.claimToken IS NULL OR r.heartbeatAt < :staleBefore)")
+    int claim(@Param("id") Long id, @Param("claimedBy") String claimedBy, @Param("claimToken") String claimToken,
+              @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("UPDATE RecategorizationRun r SET r.lastExpenseId = :lastExpenseId, r.scanned = r.scanned + :scanned, " +
+            "r.recategorized = r.recategorized + :recategorized, r.fallbackRetries = :fallbackRetries, " +
+            "r.heartbeatAt = :now, r.updatedAt = :now " +
+            "WHERE r.id = :id AND r.claimToken = :claimToken " +
+            "AND r.status = model.RecategorizationRunStatus.RUNNING")
+    int checkpoint(@Param("id") Long id, @Param("claimToken") String claimToken,
+                   @Param("lastExpenseId") long lastExpenseId, @Param("scanned") long scanned,
+                   @Param("recategorized") long recategorized, @Param("fallbackRetries") int fallbackRetries,
+                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RecategorizationRun r SET r.heartbeatAt = :now WHERE r.id = :id AND r.claimToken = :claimToken " +
+            "AND r.status = model.RecategorizationRunStatus.RUNNING")
+    int heartbeat(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RecategorizationRun r SET r.status = model.RecategorizationRunStatus.COMPLETED, r.active = NULL, " +
+            "r.claimedBy = NULL, r.claimToken = NULL, r.updatedAt = :now, r.finishedAt = :now " +
+            "WHERE r.id = :id AND r.claimToken = :claimToken AND r.status = model.RecategorizationRunStatus.RUNNING")
+    int complete(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("now") LocalDateTime now);
+
+    // Pause, resume and cancel. Dropping the claim stops the current holder at its next checkpoint, so the
+    // window it is working on is redone on resume rather than applied after the run was paused or cancelled.
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RecategorizationRun r SET r.status = :status, r.active = :active, r.claimedBy = NULL, " +
+            "r.claimToken = NULL, r.updatedAt = :now, r.finishedAt = :finishedAt " +
+            "WHERE r.id = :id AND r.status IN :from")
+    int transition(@Param("id") Long id, @Param("from") Collection<RecategorizationRunStatus> from,
+                   @Param("status") RecategorizationRunStatus status, @Param("active") Boolean active,
+                   @Param("now") LocalDateTime now, @Param("finishedAt") LocalDateTime finishedAt);
+}
@@ -0,0 +1,118 @@
+package service;
+
+import dto.AiCategorizationResult;
+import model.CategorizationStatus;
+import model.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repo.ExpenseRepository;
+
+import java.math.BigDecimal;
+
+@Service
+public class AsyncCategorizationService {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncCategorizationService.class);
+
+    public static final String PENDING_CATEGORY = "Pending";
+
+    private final ExpenseRepository expenseRepository;
+    private final ClaudeAiService claudeAiService;
+    private final RollupService rollupService;
+    private final ExpenseResponseCache responseCache;
+    private final ExpenseEventPublisher eventPublisher;
+    private final AsyncTaskExecutor categorizationExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+
+    public AsyncCategorizationService(ExpenseRepository expenseRepository,
+                                      ClaudeAiService claudeAiService,
+                                      RollupService rollupService,
+                                      ExpenseResponseCache responseCache,
+                                      ExpenseEventPublisher eventPublisher,
+                                      @Qualifier("categorizationExecutor") AsyncTaskExecutor categorizationExecutor,
+                                      PlatformTransactionManager transactionManager) {
+        this.expenseRepository = expenseRepository;
+        this.claudeAiService = claudeAiService;
+        this.rollupService = rollupService;
+        this.responseCache = responseCache;
+        this.eventPublisher = eventPublisher;
+        this.categorizationExecutor = categorizationExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void submitAfterCommit(Long expenseId, String description, BigDecimal amount) {
+        // The worker must not race the INSERT, so dispatch only once the row is visible
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(expenseId, description, amount);
+                }
+            });
+        } else {
+            submit(expenseId, description, amount);
+        }
+    }
+
+    private void submit(Long expenseId, String description, BigDecimal amount) {
+        try {
+            categorizationExecutor.execute(() -> categorizeAndApply(expenseId, description, amount));
+        } catch (TaskRejectedException e) {
+            log.warn("Categorization queue full, marking expense {} as failed", expenseId);
+            // Runs in the inserting transaction's afterCommit, where its EntityManager is still bound: joining it
+            // would change the entity but never flush, leaving the expense pending for good
+            apply(newTransactionTemplate, expenseId, claudeAiService.getFallbackCategorization(description));
+        }
+    }
+
+    private void categorizeAndApply(Long expenseId, String description, BigDecimal amount) {
+        // Runs outside any transaction so no connection is held during the Claude round-trip
+        AiCategorizationResult result = claudeAiService.categorizeExpense(description, amount.toString());
+        applyCategorization(expenseId, result);
+    }
+
+    public void applyCategorization(Long expenseId, AiCategorizationResult result) {
+        apply(transactionTemplate, expenseId, result);
+    }
+
+    private void apply(TransactionTemplate template, Long expenseId, AiCategorizationResult result) {
+        template.executeWithoutResult(status -> {
+            Expense expense = expenseRepository.findById(expenseId).orElse(null);
+            if (expense == null) {
+                log.info("Expense {} was deleted before categorization finished", expenseId);
+                return;
+            }
+            if (expense.isManuallyUpdated()) {
+                log.info("Expense {} was manually categorized, discarding AI result", expenseId);
+                return;
+            }
+
+            String previousCategory = expense.getCategory();
+            expense.setCategory(result.getCategory());
+            expense.setSubCategory(result.getSubCategory());
+            expense.setMerchantName(result.getMerchantName());
+            expense.setConfidenceScore(result.getConfidenceScore());
+            expense.setCategorizationStatus(result.isFallback()
+                    ? CategorizationStatus.FAILED
+                    : CategorizationStatus.CATEGORIZED);
+            rollupService.recordCategoryChanged(expense, previousCategory);
+            responseCache.expenseUpdated(expense, previousCategory);
+            eventPublisher.expenseCategoryChanged(expense, previousCategory);
+
+            log.info("Expense {} categorized as {} ({})",
+                    expenseId, expense.getCategory(), expense.getCategorizationStatus());
+        });
+    }
+}
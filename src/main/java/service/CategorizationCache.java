@@ -0,0 +1,249 @@
+package service;
+
+import dto.AiCategorizationResult;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import model.CategorizationCacheEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import repo.CategorizationCacheRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+@Service
+public class CategorizationCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CategorizationCache.class);
+
+    // "STARBUCKS #1234", "UBER *TRIP 8812" and "AMAZON.COM 112-3344" should all share a key
+    private static final Pattern STORE_NUMBER = Pattern.compile("#\\s*\\d+");
+    private static final Pattern LONG_NUMBER = Pattern.compile("\\b\\d{3,}\\b");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^A-Z0-9&]+");
+
+    private static final Tags METER_TAGS = Tags.of("cache", "categorization");
+
+    private final CategorizationCacheRepository cacheRepository;
+
+    @Value("${categorization.cache.enabled}")
+    private boolean enabled;
+
+    @Value("${categorization.cache.max-size}")
+    private int maxSize;
+
+    @Value("${categorization.cache.ttl-minutes}")
+    private long ttlMinutes;
+
+    @Value("${categorization.cache.persistence}")
+    private String persistence;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, CachedResult> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CategorizationCache(CategorizationCacheRepository cacheRepository, MeterRegistry meterRegistry) {
+        this.cacheRepository = cacheRepository;
+
+        // Same meters as the Caffeine caches publish, so one dashboard covers every cache
+        FunctionCounter.builder("cache.gets", hits, AtomicLong::get).tags(METER_TAGS).tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, AtomicLong::get).tags(METER_TAGS).tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", evictions, AtomicLong::get).tags(METER_TAGS)
+                .register(meterRegistry);
+        meterRegistry.gauge("cache.size", METER_TAGS, this, CategorizationCache::size);
+        meterRegistry.gauge("categorization.cache.hit.ratio", this, CategorizationCache::hitRatio);
+    }
+
+    public static String normalize(String description) {
+        if (description == null) {
+            return "";
+        }
+        String normalized = description.toUpperCase(Locale.ROOT);
+        normalized = STORE_NUMBER.matcher(normalized).replaceAll(" ");
+        normalized = NON_ALPHANUMERIC.matcher(normalized).replaceAll(" ");
+        normalized = LONG_NUMBER.matcher(normalized).replaceAll(" ");
+        return normalized.trim().replaceAll("\\s+", " ");
+    }
+
+    public Optional<AiCategorizationResult> get(String description) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        String key = normalize(description);
+        CachedResult cached = getFromMemory(key);
+
+        if (cached == null && isPersistent()) {
+            cached = loadFromDatabase(key);
+            if (cached != null) {
+                putInMemory(key, cached);
+            }
+        }
+
+        if (cached == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        hits.incrementAndGet();
+        log.debug("Categorization cache hit for key: {}", key);
+        return Optional.of(copyOf(cached.result()));
+    }
+
+    public void put(String description, AiCategorizationResult result) {
+        if (!enabled || result == null || result.getCategory() == null) {
+            return;
+        }
+
+        String key = normalize(description);
+        if (key.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        putInMemory(key, new CachedResult(copyOf(result), now.plus(ttl())));
+
+        if (isPersistent()) {
+            try {
+                cacheRepository.save(new CategorizationCacheEntry(
+                        key,
+                        result.getCategory(),
+                        result.getSubCategory(),
+                        result.getMerchantName(),
+                        result.getConfidenceScore(),
+                        now
+                ));
+            } catch (Exception e) {
+                // The in-memory entry is still usable; losing the persisted copy only costs a future miss
+                log.warn("Failed to persist categorization cache entry for key {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled || !isPersistent()) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl());
+        int purged = cacheRepository.deleteExpiredEntries(cutoff);
+
+        List<CategorizationCacheEntry> recent = cacheRepository.findByCreatedAtAfterOrderByCreatedAtDesc(
+                cutoff, PageRequest.of(0, maxSize));
+        recent.forEach(entry -> putInMemory(entry.getCacheKey(), toCachedResult(entry)));
+
+        log.info("Categorization cache warmed with {} entries ({} expired entries purged)", recent.size(), purged);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double hitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    private CachedResult getFromMemory(String key) {
+        lock.lock();
+        try {
+            CachedResult cached = entries.get(key);
+            if (cached != null && cached.expiresAt().isBefore(LocalDateTime.now())) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                return null;
+            }
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putInMemory(String key, CachedResult cached) {
+        lock.lock();
+        try {
+            entries.put(key, cached);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CachedResult loadFromDatabase(String key) {
+        try {
+            return cacheRepository.findById(key)
+                    .map(this::toCachedResult)
+                    .filter(cached -> cached.expiresAt().isAfter(LocalDateTime.now()))
+                    .orElse(null);
+        } catch (Exception e) {
+            log.warn("Failed to read categorization cache entry for key {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private CachedResult toCachedResult(CategorizationCacheEntry entry) {
+        AiCategorizationResult result = new AiCategorizationResult(
+                entry.getCategory(),
+                entry.getSubCategory(),
+                entry.getMerchantName(),
+                entry.getConfidenceScore(),
+                "Cached categorization",
+                false
+        );
+        return new CachedResult(result, entry.getCreatedAt().plus(ttl()));
+    }
+
+    private boolean isPersistent() {
+        return "database".equalsIgnoreCase(persistence);
+    }
+
+    private Duration ttl() {
+        return Duration.ofMinutes(ttlMinutes);
+    }
+
+    private static AiCategorizationResult copyOf(AiCategorizationResult result) {
+        return new AiCategorizationResult(
+                result.getCategory(),
+                result.getSubCategory(),
+                result.getMerchantName(),
+                result.getConfidenceScore(),
+                result.getReasoning(),
+                false
+        );
+    }
+
+    private record CachedResult(AiCategorizationResult result, LocalDateTime expiresAt) {
+    }
+}
@@ -0,0 +1,230 @@
+package service;
+
+import dto.AiCategorizationResult;
+import dto.ExpenseRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import model.CategorizationJob;
+import model.CategorizationJobStatus;
+import model.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import repo.CategorizationJobRepository;
+import repo.ExpenseRepository;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Durable work queue for categorizations that haven't succeeded yet: pending expenses, and expenses saved with
+// the fallback category because Claude was unavailable. Every instance polls the same table; claims use
+// SELECT ... FOR UPDATE SKIP LOCKED plus a lease, so instances share the work without processing a job twice.
+@Service
+public class CategorizationOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(CategorizationOutbox.class);
+
+    private final CategorizationJobRepository jobRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ClaudeAiService claudeAiService;
+    private final AsyncCategorizationService asyncCategorizationService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName();
+
+    @Value("${categorization.outbox.enabled}")
+    private boolean enabled;
+
+    @Value("${categorization.outbox.batch-size}")
+    private int batchSize;
+
+    @Value("${categorization.outbox.lease-seconds}")
+    private long leaseSeconds;
+
+    @Value("${categorization.outbox.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${categorization.outbox.initial-backoff-seconds}")
+    private long initialBackoffSeconds;
+
+    @Value("${categorization.outbox.max-backoff-seconds}")
+    private long maxBackoffSeconds;
+
+    public CategorizationOutbox(CategorizationJobRepository jobRepository, ExpenseRepository expenseRepository,
+                                ClaudeAiService claudeAiService, AsyncCategorizationService asyncCategorizationService,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.jobRepository = jobRepository;
+        this.expenseRepository = expenseRepository;
+        this.claudeAiService = claudeAiService;
+        this.asyncCategorizationService = asyncCategorizationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Joins the caller's transaction, so the job commits or rolls back together with the expense
+    @Transactional
+    public void enqueue(Long expenseId) {
+        enqueue(List.of(expenseId));
+    }
+
+    @Transactional
+    public void enqueue(Collection<Long> expenseIds) {
+        if (!enabled || expenseIds.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, CategorizationJob> existing = jobRepository.findByExpenseIdIn(expenseIds).stream()
+                .collect(Collectors.toMap(CategorizationJob::getExpenseId, Function.identity()));
+
+        List<CategorizationJob> jobs = new ArrayList<>(expenseIds.size());
+        for (Long expenseId : expenseIds) {
+            // Re-enqueueing resets a job, including one that had given up
+            CategorizationJob job = existing.getOrDefault(expenseId, new CategorizationJob());
+            job.setExpenseId(expenseId);
+            job.setStatus(CategorizationJobStatus.QUEUED);
+            job.setAvailableAt(now);
+            job.setAttempts(0);
+            job.setClaimedBy(null);
+            job.setClaimToken(null);
+            if (job.getCreatedAt() == null) {
+                job.setCreatedAt(now);
+            }
+            jobs.add(job);
+        }
+        jobRepository.saveAll(jobs);
+    }
+
+    @Scheduled(fixedDelayString = "${categorization.outbox.poll-interval-ms}")
+    public void processDueJobs() {
+        if (!enabled) {
+            return;
+        }
+
+        // Keep going while full batches come back, so a backlog drains without waiting for the next poll
+        int claimed;
+        do {
+            claimed = processBatch();
+        } while (claimed == batchSize);
+    }
+
+    int processBatch() {
+        String claimToken = UUID.randomUUID().toString();
+        List<ClaimedJob> claimed = claim(claimToken);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        // One Claude prompt for the whole batch, sent with no transaction open
+        List<ExpenseRequest> requests = claimed.stream().map(ClaimedJob::request).toList();
+        List<AiCategorizationResult> results = claudeAiService.categorizeExpenses(requests);
+
+        for (int i = 0; i < claimed.size(); i++) {
+            complete(claimed.get(i), results.get(i), claimToken);
+        }
+        return claimed.size();
+    }
+
+    private List<ClaimedJob> claim(String claimToken) {
+        List<ClaimedJob> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<CategorizationJob> jobs = jobRepository.lockDueJobs(now, batchSize);
+            if (jobs.isEmpty()) {
+                return List.of();
+            }
+
+            Map<Long, Expense> expenses = expenseRepository.findAllById(
+                            jobs.stream().map(CategorizationJob::getExpenseId).toList()).stream()
+                    .collect(Collectors.toMap(Expense::getId, Function.identity()));
+
+            List<ClaimedJob> result = new ArrayList<>(jobs.size());
+            for (CategorizationJob job : jobs) {
+                Expense expense = expenses.get(job.getExpenseId());
+                if (expense == null || expense.isManuallyUpdated()) {
+                    // Deleted, or the user picked a category; either way there's nothing left to do
+                    jobRepository.delete(job);
+                    recordOutcome("discarded");
+                    continue;
+                }
+
+                // The lease: if this worker dies, the job becomes claimable again once it runs out
+                job.setAvailableAt(now.plusSeconds(leaseSeconds));
+                job.setAttempts(job.getAttempts() + 1);
+                job.setClaimedBy(workerId);
+                job.setClaimToken(claimToken);
+
+                ExpenseRequest request = new ExpenseRequest();
+                request.setDescription(expense.getDescription());
+                request.setAmount(expense.getAmount());
+                result.add(new ClaimedJob(job.getId(), expense.getId(), job.getAttempts(), request));
+            }
+            return result;
+        });
+
+        if (!claimed.isEmpty()) {
+            log.debug("Worker {} claimed {} categorization jobs", workerId, claimed.size());
+        }
+        return claimed;
+    }
+
+    private void complete(ClaimedJob job, AiCategorizationResult result, String claimToken) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!result.isFallback()) {
+                // Deleting the job and applying the result commit together; a stale claim applies nothing
+                if (jobRepository.deleteClaimed(job.id(), claimToken) == 0) {
+                    log.warn("Lost the claim on categorization job {}, discarding its result", job.id());
+                    recordOutcome("lost");
+                    return;
+                }
+                asyncCategorizationService.applyCategorization(job.expenseId(), result);
+                recordOutcome("completed");
+                return;
+            }
+
+            if (job.attempts() >= maxAttempts) {
+                if (jobRepository.failClaimed(job.id(), claimToken) > 0) {
+                    log.warn("Giving up on categorizing expense {} after {} attempts", job.expenseId(), job.attempts());
+                    asyncCategorizationService.applyCategorization(job.expenseId(), result);
+                    recordOutcome("failed");
+                }
+                return;
+            }
+
+            LocalDateTime retryAt = LocalDateTime.now().plusSeconds(backoffSeconds(job.attempts()));
+            if (jobRepository.releaseClaimed(job.id(), claimToken, retryAt) > 0) {
+                log.info("Categorization of expense {} failed (attempt {}), retrying at {}",
+                        job.expenseId(), job.attempts(), retryAt);
+                recordOutcome("retried");
+            }
+        });
+    }
+
+    private long backoffSeconds(int attempts) {
+        // Exponential, jittered over the upper half so instances retrying after an outage don't all return at once
+        long ceiling = Math.min(maxBackoffSeconds, initialBackoffSeconds << Math.min(attempts - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private void recordOutcome(String outcome) {
+        meterRegistry.counter("categorization.outbox.jobs", "outcome", outcome).increment();
+    }
+
+    private record ClaimedJob(Long id, Long expenseId, int attempts, ExpenseRequest request) {
+    }
+}
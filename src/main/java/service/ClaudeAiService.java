@@ -1,11 +1,21 @@
 package service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import dto.AiCategorizationResult;
+import dto.ExpenseRequest;
 import dto.claude.ClaudeRequest;
 import dto.claude.ClaudeResponse;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,15 +24,83 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 @Service
 public class ClaudeAiService {
 
     private static final Logger log = LoggerFactory.getLogger(ClaudeAiService.class);
 
+    // Tag values for categorization.results; the fallback share of the total is the fallback rate
+    private static final String SOURCE_CORRECTION = "correction";
+    private static final String SOURCE_RULE = "rule";
+    private static final String SOURCE_CACHE = "cache";
+    private static final String SOURCE_API = "api";
+    private static final String SOURCE_FALLBACK = "fallback";
+
+    private static final String CATEGORY_LIST = """
+            - Food & Dining (restaurants, groceries, coffee shops)
+            - Transportation (fuel, public transit, ride-sharing, parking)
+            - Shopping (clothing, electronics, online shopping)
+            - Entertainment (movies, concerts, games, subscriptions)
+            - Bills & Utilities (electricity, water, internet, phone)
+            - Healthcare (doctor visits, pharmacy, insurance)
+            - Travel (hotels, flights, vacation expenses)
+            - Education (courses, books, tuition)
+            - Personal Care (salon, gym, spa)
+            - Home & Garden (furniture, repairs, gardening)
+            - Gifts & Donations
+            - Other
+            """;
+
+    // Compact mode: the model answers with a two-letter code instead of the category name
+    private static final Map<String, String> CATEGORY_CODES = new LinkedHashMap<>();
+
+    static {
+        CATEGORY_CODES.put("FD", "Food & Dining");
+        CATEGORY_CODES.put("TR", "Transportation");
+        CATEGORY_CODES.put("SH", "Shopping");
+        CATEGORY_CODES.put("EN", "Entertainment");
+        CATEGORY_CODES.put("BU", "Bills & Utilities");
+        CATEGORY_CODES.put("HC", "Healthcare");
+        CATEGORY_CODES.put("TV", "Travel");
+        CATEGORY_CODES.put("ED", "Education");
+        CATEGORY_CODES.put("PC", "Personal Care");
+        CATEGORY_CODES.put("HG", "Home & Garden");
+        CATEGORY_CODES.put("GD", "Gifts & Donations");
+        CATEGORY_CODES.put("OT", "Other");
+    }
+
+    // Everything that doesn't change between requests lives in the system prompt, so the per-request
+    // message is just the expense itself. Reasoning is not requested: it was most of the output tokens.
+    private static final String COMPACT_SYSTEM_PROMPT = """
+            Categorize card expenses. Reply with JSON only, no prose.
+            Codes: FD=Food & Dining (restaurants, groceries, coffee) TR=Transportation (fuel, transit, \
+            ride-sharing, parking) SH=Shopping EN=Entertainment (movies, games, subscriptions) \
+            BU=Bills & Utilities (power, water, internet, phone) HC=Healthcare (doctor, pharmacy, insurance) \
+            TV=Travel (hotels, flights) ED=Education PC=Personal Care (salon, gym, spa) \
+            HG=Home & Garden GD=Gifts & Donations OT=Other
+            Input "description | $amount": reply {"c":code,"s":subcategory,"m":merchant or null,"p":confidence}
+            Input lines "i|description|$amount": reply [{"i":i,"c":..,"s":..,"m":..,"p":..}] with one item per line
+            """;
+
     @Value("${anthropic.api.key}")
     private String apiKey;
 
@@ -35,30 +113,225 @@ public class ClaudeAiService {
     @Value("${anthropic.api.max-tokens}")
     private Integer maxTokens;
 
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    @Value("${categorization.batch.size}")
+    private int batchSize;
+
+    @Value("${categorization.batch.max-tokens}")
+    private Integer batchMaxTokens;
 
-    public ClaudeAiService() {
-        this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
+    @Value("${categorization.prompt.mode}")
+    private String promptMode;
+
+    @Value("${categorization.prompt.compact.max-tokens-per-expense}")
+    private int compactMaxTokensPerExpense;
+
+    @Value("${anthropic.api.prompt-caching}")
+    private boolean promptCaching;
+
+    private final RestTemplate restTemplate;
+    private final JsonFactory jsonFactory;
+    private final CategorizationCache categorizationCache;
+    private final MerchantClassifier merchantClassifier;
+    private final CorrectionClassifier correctionClassifier;
+    private final CircuitBreaker circuitBreaker;
+    private final Retry retry;
+    private final Bulkhead bulkhead;
+
+    private final ConcurrentMap<String, CompletableFuture<AiCategorizationResult>> inFlightCalls =
+            new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Counter leaderCalls;
+    private final Counter coalescedCalls;
+    private final Counter parseFailures;
+    private final Counter truncatedResponses;
+
+    public ClaudeAiService(RestTemplate restTemplate, CategorizationCache categorizationCache,
+                           MerchantClassifier merchantClassifier, CorrectionClassifier correctionClassifier,
+                           CircuitBreaker circuitBreaker, Retry retry, Bulkhead bulkhead,
+                           MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.jsonFactory = new JsonFactory();
+        this.categorizationCache = categorizationCache;
+        this.merchantClassifier = merchantClassifier;
+        this.correctionClassifier = correctionClassifier;
+        this.circuitBreaker = circuitBreaker;
+        this.retry = retry;
+        this.bulkhead = bulkhead;
+        this.meterRegistry = meterRegistry;
+        this.leaderCalls = meterRegistry.counter("claude.singleflight.calls", "role", "leader");
+        this.coalescedCalls = meterRegistry.counter("claude.singleflight.calls", "role", "coalesced");
+        meterRegistry.gauge("claude.singleflight.in.flight", inFlightCalls, ConcurrentMap::size);
+        this.parseFailures = meterRegistry.counter("claude.parse.failures");
+        this.truncatedResponses = meterRegistry.counter("claude.responses.truncated");
     }
 
     public AiCategorizationResult categorizeExpense(String description, String amount) {
         log.info("Categorizing expense: {} - ${}", description, amount);
 
+        Optional<AiCategorizationResult> local = lookupLocally(description, true);
+        if (local.isPresent()) {
+            return local.get();
+        }
+
+        // Concurrent callers with the same key wait on the first caller's request instead of sending their own
+        String key = singleFlightKey(description, amount);
+        CompletableFuture<AiCategorizationResult> call = new CompletableFuture<>();
+        CompletableFuture<AiCategorizationResult> inFlight = inFlightCalls.putIfAbsent(key, call);
+        if (inFlight != null) {
+            coalescedCalls.increment();
+            log.debug("Joining in-flight categorization for key: {}", key);
+            AiCategorizationResult shared = copyOf(inFlight.join());
+            recordResult(shared.isFallback() ? SOURCE_FALLBACK : SOURCE_API);
+            return shared;
+        }
+
+        leaderCalls.increment();
+        try {
+            AiCategorizationResult result = categorizeWithApi(description, amount);
+            call.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightCalls.remove(key, call);
+        }
+    }
+
+    private AiCategorizationResult categorizeWithApi(String description, String amount) {
         try {
-            String prompt = buildCategorizationPrompt(description, amount);
-            ClaudeRequest request = buildClaudeRequest(prompt);
+            ClaudeRequest request;
+            if (isCompactPrompt()) {
+                request = buildCompactClaudeRequest(description + " | $" + amount, compactMaxTokensPerExpense);
+            } else {
+                request = buildClaudeRequest(buildCategorizationPrompt(description, amount));
+            }
 
-            ClaudeResponse response = callClaudeApi(request);
+            ClaudeResponse response = callClaudeApi(request, "single");
 
-            return parseCategorizationResponse(response);
+            AiCategorizationResult result = parseCategorizationResponse(response);
+            recordResult(SOURCE_API);
+            // Cached before the waiters are released, so later callers hit the cache instead of a new flight
+            categorizationCache.put(description, result);
+            return result;
         } catch (Exception e) {
             log.error("Error categorizing expense with AI: {}", e.getMessage(), e);
+            recordResult(SOURCE_FALLBACK);
             return getFallbackCategorization(description);
         }
     }
 
+    static String singleFlightKey(String description, String amount) {
+        // Amounts only steer the model at the order-of-magnitude level ($4 coffee vs $400 espresso machine)
+        String bucket;
+        try {
+            BigDecimal value = new BigDecimal(amount.trim()).abs();
+            bucket = value.signum() == 0 ? "0" : Integer.toString(value.precision() - value.scale());
+        } catch (RuntimeException e) {
+            bucket = "?";
+        }
+        return CategorizationCache.normalize(description) + '|' + bucket;
+    }
+
+    public List<AiCategorizationResult> categorizeExpenses(List<ExpenseRequest> expenses) {
+        return categorizeExpenses(expenses, true);
+    }
+
+    // For the re-categorization backfill: skips cached AI answers, which may be the very low-confidence results
+    // being redone. Corrections and rules still apply, and the fresh answers replace the cached ones.
+    public List<AiCategorizationResult> recategorizeExpenses(List<ExpenseRequest> expenses) {
+        return categorizeExpenses(expenses, false);
+    }
+
+    private List<AiCategorizationResult> categorizeExpenses(List<ExpenseRequest> expenses, boolean useCache) {
+        log.info("Categorizing batch of {} expenses", expenses.size());
+
+        AiCategorizationResult[] results = new AiCategorizationResult[expenses.size()];
+        List<Integer> unresolved = new ArrayList<>();
+
+        for (int i = 0; i < expenses.size(); i++) {
+            Optional<AiCategorizationResult> local = lookupLocally(expenses.get(i).getDescription(), useCache);
+            if (local.isPresent()) {
+                results[i] = local.get();
+            } else {
+                unresolved.add(i);
+            }
+        }
+
+        for (int from = 0; from < unresolved.size(); from += batchSize) {
+            List<Integer> indexes = unresolved.subList(from, Math.min(from + batchSize, unresolved.size()));
+            List<ExpenseRequest> batch = indexes.stream().map(expenses::get).toList();
+
+            List<AiCategorizationResult> batchResults = categorizeBatch(batch);
+            for (int j = 0; j < indexes.size(); j++) {
+                results[indexes.get(j)] = batchResults.get(j);
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private Optional<AiCategorizationResult> lookupLocally(String description, boolean useCache) {
+        // Users' own corrections outrank the generic merchant rules, which outrank cached AI answers.
+        // Neither corrections nor rule hits are cached; both are cheaper to recompute than to look up.
+        Optional<AiCategorizationResult> learned = correctionClassifier.classify(description);
+        if (learned.isPresent()) {
+            recordResult(SOURCE_CORRECTION);
+            return learned;
+        }
+
+        Optional<AiCategorizationResult> matched = merchantClassifier.classify(description);
+        if (matched.isPresent()) {
+            recordResult(SOURCE_RULE);
+            return matched;
+        }
+
+        if (!useCache) {
+            return Optional.empty();
+        }
+
+        Optional<AiCategorizationResult> cached = categorizationCache.get(description);
+        cached.ifPresent(result -> recordResult(SOURCE_CACHE));
+        return cached;
+    }
+
+    private List<AiCategorizationResult> categorizeBatch(List<ExpenseRequest> batch) {
+        List<AiCategorizationResult> results = new ArrayList<>(Collections.nCopies(batch.size(), null));
+
+        try {
+            ClaudeRequest request;
+            if (isCompactPrompt()) {
+                request = buildCompactClaudeRequest(buildCompactPrompt(batch),
+                        Math.min(batchMaxTokens, batch.size() * compactMaxTokensPerExpense));
+            } else {
+                request = buildClaudeRequest(buildCategorizationPrompt(batch), batchMaxTokens);
+            }
+
+            ClaudeResponse response = callClaudeApi(request, "batch");
+
+            List<AiCategorizationResult> parsed = parseCategorizationResponse(response, batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                AiCategorizationResult result = parsed.get(i);
+                if (result != null) {
+                    categorizationCache.put(batch.get(i).getDescription(), result);
+                    recordResult(SOURCE_API);
+                    results.set(i, result);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error categorizing expense batch with AI: {}", e.getMessage(), e);
+        }
+
+        // Anything the model skipped or we failed to parse falls back individually
+        for (int i = 0; i < batch.size(); i++) {
+            if (results.get(i) == null) {
+                recordResult(SOURCE_FALLBACK);
+                results.set(i, getFallbackCategorization(batch.get(i).getDescription()));
+            }
+        }
+        return results;
+    }
+
     private String buildCategorizationPrompt(String description, String amount) {
         return String.format("""
             Analyze this expense and categorize it. Return ONLY a JSON object with no additional text.
@@ -67,19 +340,7 @@ public class ClaudeAiService {
             Amount: $%s
             
             Categorize this expense into one of these categories:
-            - Food & Dining (restaurants, groceries, coffee shops)
-            - Transportation (fuel, public transit, ride-sharing, parking)
-            - Shopping (clothing, electronics, online shopping)
-            - Entertainment (movies, concerts, games, subscriptions)
-            - Bills & Utilities (electricity, water, internet, phone)
-            - Healthcare (doctor visits, pharmacy, insurance)
-            - Travel (hotels, flights, vacation expenses)
-            - Education (courses, books, tuition)
-            - Personal Care (salon, gym, spa)
-            - Home & Garden (furniture, repairs, gardening)
-            - Gifts & Donations
-            - Other
-            
+            %s
             Return ONLY this JSON structure:
             {
               "category": "Primary Category",
@@ -88,20 +349,88 @@ public class ClaudeAiService {
               "confidenceScore": 0.95,
               "reasoning": "Brief explanation"
             }
-            """, description, amount);
+            """, description, amount, CATEGORY_LIST);
+    }
+
+    private String buildCategorizationPrompt(List<ExpenseRequest> expenses) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < expenses.size(); i++) {
+            ExpenseRequest expense = expenses.get(i);
+            lines.append(i).append(". Description: ").append(expense.getDescription())
+                    .append(" | Amount: $").append(expense.getAmount()).append('\n');
+        }
+
+        return String.format("""
+            Analyze these expenses and categorize each one. Return ONLY a JSON array with no additional text.
+            
+            Expenses:
+            %s
+            Categorize each expense into one of these categories:
+            %s
+            Return ONLY a JSON array with exactly one object per expense:
+            [
+              {
+                "index": 0,
+                "category": "Primary Category",
+                "subCategory": "Specific subcategory if applicable",
+                "merchantName": "Extracted merchant name if identifiable",
+                "confidenceScore": 0.95,
+                "reasoning": "Brief explanation"
+              }
+            ]
+            """, lines, CATEGORY_LIST);
+    }
+
+    private String buildCompactPrompt(List<ExpenseRequest> expenses) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < expenses.size(); i++) {
+            ExpenseRequest expense = expenses.get(i);
+            lines.append(i).append('|').append(expense.getDescription())
+                    .append("|$").append(expense.getAmount()).append('\n');
+        }
+        return lines.toString();
+    }
+
+    private boolean isCompactPrompt() {
+        return "compact".equalsIgnoreCase(promptMode);
     }
 
     private ClaudeRequest buildClaudeRequest(String prompt) {
+        return buildClaudeRequest(prompt, maxTokens);
+    }
+
+    private ClaudeRequest buildClaudeRequest(String prompt, Integer maxTokens) {
         ClaudeRequest.Message message = new ClaudeRequest.Message("user", prompt);
 
         return new ClaudeRequest(
                 model,
                 maxTokens,
+                null,
                 Collections.singletonList(message)
         );
     }
 
-    private ClaudeResponse callClaudeApi(ClaudeRequest request) {
+    private ClaudeRequest buildCompactClaudeRequest(String prompt, Integer maxTokens) {
+        // The API ignores cache_control on prefixes shorter than the model's minimum (1024 tokens on Sonnet),
+        // so marking the system prompt costs nothing until it grows past that
+        ClaudeRequest.CacheControl cacheControl = promptCaching ? new ClaudeRequest.CacheControl("ephemeral") : null;
+        ClaudeRequest.SystemBlock system = new ClaudeRequest.SystemBlock("text", COMPACT_SYSTEM_PROMPT, cacheControl);
+
+        return new ClaudeRequest(
+                model,
+                maxTokens,
+                Collections.singletonList(system),
+                Collections.singletonList(new ClaudeRequest.Message("user", prompt))
+        );
+    }
+
+    private ClaudeResponse callClaudeApi(ClaudeRequest request, String requestType) {
+        // A transaction open here would keep its pooled connection checked out for the whole round-trip, retries
+        // included. Callers categorize first and open their transaction afterwards; refuse rather than hold one.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Claude API called inside a database transaction");
+        }
+
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.set("x-api-key", apiKey);
@@ -109,16 +438,75 @@ public class ClaudeAiService {
 
         HttpEntity<ClaudeRequest> entity = new HttpEntity<>(request, headers);
 
-        ResponseEntity<ClaudeResponse> response = restTemplate.postForEntity(
-                apiUrl,
-                entity,
-                ClaudeResponse.class
-        );
+        Supplier<ClaudeResponse> call = () -> {
+            ResponseEntity<ClaudeResponse> response = restTemplate.postForEntity(
+                    apiUrl,
+                    entity,
+                    ClaudeResponse.class
+            );
+            return response.getBody();
+        };
+
+        // Each retry attempt passes through the circuit breaker and bulkhead again. An open circuit
+        // or a full bulkhead throws immediately, so the caller falls back without waiting on the upstream.
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ClaudeResponse response = Retry.decorateSupplier(retry,
+                    CircuitBreaker.decorateSupplier(circuitBreaker,
+                            Bulkhead.decorateSupplier(bulkhead, call))).get();
+            outcome = "success";
+            recordUsage(response, requestType);
+            return response;
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            // Includes retries and backoff, i.e. the latency the caller actually experienced
+            sample.stop(meterRegistry.timer("claude.api.calls", "type", requestType, "outcome", outcome));
+        }
+    }
+
+    private void recordUsage(ClaudeResponse response, String requestType) {
+        if (response == null) {
+            return;
+        }
+        if ("max_tokens".equals(response.getStopReason())) {
+            // The output budget is sized for the expected JSON; hitting it means the answer was cut off
+            truncatedResponses.increment();
+            log.warn("Claude {} response hit max_tokens and was truncated", requestType);
+        }
+
+        ClaudeResponse.Usage usage = response.getUsage();
+        if (usage == null) {
+            return;
+        }
+        recordTokens(requestType, "input", usage.getInputTokens());
+        recordTokens(requestType, "output", usage.getOutputTokens());
+        recordTokens(requestType, "cache_read", usage.getCacheReadInputTokens());
+        recordTokens(requestType, "cache_write", usage.getCacheCreationInputTokens());
+        log.debug("Claude {} call used {} input, {} output, {} cache read and {} cache write tokens",
+                requestType, usage.getInputTokens(), usage.getOutputTokens(),
+                usage.getCacheReadInputTokens(), usage.getCacheCreationInputTokens());
+    }
+
+    private void recordTokens(String requestType, String tokenType, Integer tokens) {
+        if (tokens == null) {
+            return;
+        }
+        DistributionSummary.builder("claude.tokens")
+                .tag("type", tokenType)
+                .tag("request", requestType)
+                .baseUnit("tokens")
+                .register(meterRegistry)
+                .record(tokens);
+    }
 
-        return response.getBody();
+    private void recordResult(String source) {
+        meterRegistry.counter("categorization.results", "source", source).increment();
     }
 
-    private AiCategorizationResult parseCategorizationResponse(ClaudeResponse response) {
+    AiCategorizationResult parseCategorizationResponse(ClaudeResponse response) {
         if (response == null || response.getContent() == null || response.getContent().isEmpty()) {
             throw new RuntimeException("Empty response from Claude API");
         }
@@ -126,38 +514,142 @@ public class ClaudeAiService {
         String responseText = response.getContent().get(0).getText();
         log.debug("Claude response: {}", responseText);
 
-        try {
-            // Extract JSON from response (Claude might add some text before/after)
-            String jsonText = extractJson(responseText);
-            JsonNode jsonNode = objectMapper.readTree(jsonText);
+        // Claude might add some text before/after the JSON, so try each '{' in turn until one holds a result
+        int start = responseText.indexOf('{');
+        while (start >= 0) {
+            int next = start + 1;
+            try (JsonParser parser = parserAt(responseText, start)) {
+                parser.nextToken();
+                AiCategorizationResult result = readCategorization(parser).result();
+                if (result.getCategory() != null) {
+                    return result;
+                }
+                // Objects nested in this one are its fields, not answers; carry on after it
+                next = start + (int) parser.currentLocation().getCharOffset();
+            } catch (IOException e) {
+                log.debug("No usable JSON object at offset {} of Claude response: {}", start, e.getMessage());
+            }
+            start = responseText.indexOf('{', next);
+        }
 
-            AiCategorizationResult result = new AiCategorizationResult();
-            result.setCategory(jsonNode.get("category").asText());
-            result.setSubCategory(jsonNode.has("subCategory") ? jsonNode.get("subCategory").asText() : null);
-            result.setMerchantName(jsonNode.has("merchantName") ? jsonNode.get("merchantName").asText() : null);
-            result.setConfidenceScore(jsonNode.has("confidenceScore") ? jsonNode.get("confidenceScore").asDouble() : 0.5);
-            result.setReasoning(jsonNode.has("reasoning") ? jsonNode.get("reasoning").asText() : "");
+        parseFailures.increment();
+        log.error("Error parsing Claude response: no categorization found");
+        throw new RuntimeException("Failed to parse AI response");
+    }
 
-            return result;
-        } catch (JsonProcessingException e) {
-            log.error("Error parsing Claude response: {}", e.getMessage());
-            throw new RuntimeException("Failed to parse AI response", e);
+    List<AiCategorizationResult> parseCategorizationResponse(ClaudeResponse response, int expectedCount) {
+        if (response == null || response.getContent() == null || response.getContent().isEmpty()) {
+            throw new RuntimeException("Empty response from Claude API");
         }
+
+        String responseText = response.getContent().get(0).getText();
+        log.debug("Claude batch response: {}", responseText);
+
+        List<AiCategorizationResult> results = new ArrayList<>(Collections.nCopies(expectedCount, null));
+        int start = responseText.indexOf('[');
+        while (start >= 0) {
+            int next = start + 1;
+            int parsed = 0;
+            int usable = 0;
+            try (JsonParser parser = parserAt(responseText, start)) {
+                parser.nextToken();
+                JsonToken token;
+                while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    Categorization item = readCategorization(parser);
+                    int index = item.index() >= 0 ? item.index() : parsed;
+                    parsed++;
+                    if (index >= expectedCount || item.result().getCategory() == null) {
+                        log.warn("Ignoring unusable item at position {} of AI batch response", parsed - 1);
+                        continue;
+                    }
+                    results.set(index, item.result());
+                    usable++;
+                }
+                if (usable > 0) {
+                    return results;
+                }
+                // Nothing usable, e.g. a "[1]" in the preamble: the answer may be a later array, though not one
+                // nested in this
+                next = start + (int) parser.currentLocation().getCharOffset();
+            } catch (IOException e) {
+                if (usable > 0) {
+                    // A response cut off at max_tokens still carries its leading items; the rest fall back
+                    log.warn("AI batch response broke off after {} items: {}", parsed, e.getMessage());
+                    return results;
+                }
+                log.debug("No usable JSON array at offset {} of Claude batch response: {}", start, e.getMessage());
+            }
+            start = responseText.indexOf('[', next);
+        }
+
+        parseFailures.increment();
+        log.error("Error parsing Claude batch response: no usable JSON array found");
+        throw new RuntimeException("Failed to parse AI batch response");
     }
 
-    private String extractJson(String text) {
-        // Find JSON object in the response
-        int startIndex = text.indexOf("{");
-        int endIndex = text.lastIndexOf("}");
+    private JsonParser parserAt(String text, int start) throws IOException {
+        // Reading from an offset into the original text avoids copying the JSON out with substring
+        StringReader reader = new StringReader(text);
+        reader.skip(start);
+        return jsonFactory.createParser(reader);
+    }
 
-        if (startIndex >= 0 && endIndex > startIndex) {
-            return text.substring(startIndex, endIndex + 1);
+    // Reads one object, verbose or compact keys, straight into a result without building a tree
+    private Categorization readCategorization(JsonParser parser) throws IOException {
+        int index = -1;
+        String category = null;
+        String subCategory = null;
+        String merchantName = null;
+        double confidenceScore = 0.5;
+        String reasoning = "";
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+
+            switch (field) {
+                case "category" -> category = parser.getValueAsString();
+                case "c" -> {
+                    // Tolerate the model answering with the full name instead of the code
+                    String code = parser.getValueAsString();
+                    category = code == null ? null : CATEGORY_CODES.getOrDefault(code.toUpperCase(Locale.ROOT), code);
+                }
+                case "subCategory", "s" -> subCategory = parser.getValueAsString();
+                case "merchantName", "m" -> merchantName = parser.getValueAsString();
+                case "confidenceScore", "p" -> confidenceScore = parser.getValueAsDouble(0.5);
+                case "reasoning" -> reasoning = parser.getValueAsString("");
+                case "index", "i" -> index = parser.getValueAsInt(-1);
+                default -> {
+                    // Unknown scalar field, nothing to skip
+                }
+            }
         }
 
-        return text;
+        return new Categorization(index, new AiCategorizationResult(category, subCategory, merchantName,
+                confidenceScore, reasoning, false));
+    }
+
+    private static AiCategorizationResult copyOf(AiCategorizationResult result) {
+        return new AiCategorizationResult(
+                result.getCategory(),
+                result.getSubCategory(),
+                result.getMerchantName(),
+                result.getConfidenceScore(),
+                result.getReasoning(),
+                result.isFallback()
+        );
     }
 
-    private AiCategorizationResult getFallbackCategorization(String description) {
+    public AiCategorizationResult getFallbackCategorization(String description) {
         log.warn("Using fallback categorization for: {}", description);
 
         AiCategorizationResult result = new AiCategorizationResult();
@@ -166,7 +658,11 @@ public class ClaudeAiService {
         result.setMerchantName(null);
         result.setConfidenceScore(0.0);
         result.setReasoning("AI categorization failed, manual review needed");
+        result.setFallback(true);
 
         return result;
     }
-}
\ No newline at end of file
+
+    private record Categorization(int index, AiCategorizationResult result) {
+    }
+}
@@ -0,0 +1,275 @@
+package service;
+
+import dto.AiCategorizationResult;
+import model.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import repo.ExpenseRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Learns from manual category corrections. An exact normalized description is answered straight from the
+// corrections; otherwise a multinomial naive Bayes over word unigrams and bigrams predicts the category.
+@Service
+public class CorrectionClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(CorrectionClassifier.class);
+
+    private static final double EXACT_MATCH_CONFIDENCE = 0.99;
+
+    private final ExpenseRepository expenseRepository;
+
+    @Value("${categorization.corrections.enabled}")
+    private boolean enabled;
+
+    @Value("${categorization.corrections.min-confidence}")
+    private double minConfidence;
+
+    @Value("${categorization.corrections.min-examples}")
+    private int minExamples;
+
+    @Value("${categorization.corrections.min-known-word-ratio}")
+    private double minKnownWordRatio;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Everything below is guarded by lock
+    private final Map<Long, Correction> correctionsByExpense = new HashMap<>();
+    // Every correction of each normalized description, oldest first; the newest answers exact matches
+    private final Map<String, Map<Long, Correction>> correctionsByKey = new HashMap<>();
+    private final Map<String, CategoryStats> categories = new HashMap<>();
+    private final Map<String, Integer> vocabulary = new HashMap<>();
+    private int exampleCount;
+
+    public CorrectionClassifier(ExpenseRepository expenseRepository) {
+        this.expenseRepository = expenseRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void train() {
+        if (!enabled) {
+            return;
+        }
+
+        List<Expense> corrected = expenseRepository.findByManuallyUpdatedTrue();
+        corrected.forEach(this::learn);
+        log.info("Correction classifier trained on {} manually categorized expenses", corrected.size());
+    }
+
+    // Writers call learn and forget inside their transaction; the classifier only changes once it commits, so a
+    // correction that is rolled back teaches nothing
+
+    public void learn(Expense expense) {
+        if (!enabled || expense.getId() == null || expense.getCategory() == null) {
+            return;
+        }
+
+        String key = CategorizationCache.normalize(expense.getDescription());
+        if (key.isEmpty()) {
+            return;
+        }
+
+        Long expenseId = expense.getId();
+        Correction correction = new Correction(key, expense.getCategory(), expense.getSubCategory(),
+                expense.getMerchantName());
+
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                // Re-correcting the same expense replaces what it taught us rather than counting twice
+                Correction previous = correctionsByExpense.put(expenseId, correction);
+                if (previous != null) {
+                    remove(expenseId, previous);
+                }
+                updateCounts(correction, 1);
+                correctionsByKey.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(expenseId, correction);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            log.debug("Learned correction '{}' -> {}", key, correction.category());
+        });
+    }
+
+    public void forget(Long expenseId) {
+        if (!enabled || expenseId == null) {
+            return;
+        }
+
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Correction previous = correctionsByExpense.remove(expenseId);
+                if (previous != null) {
+                    remove(expenseId, previous);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public Optional<AiCategorizationResult> classify(String description) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        String key = CategorizationCache.normalize(description);
+        if (key.isEmpty()) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            Correction exact = newest(correctionsByKey.get(key));
+            if (exact != null) {
+                return Optional.of(new AiCategorizationResult(exact.category(), exact.subCategory(),
+                        exact.merchantName(), EXACT_MATCH_CONFIDENCE, "Matched a manual correction", false));
+            }
+
+            if (exampleCount < minExamples || categories.size() < 2) {
+                return Optional.empty();
+            }
+            return predict(tokenize(key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return exampleCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Optional<AiCategorizationResult> predict(List<String> tokens) {
+        List<String> known = tokens.stream().filter(vocabulary::containsKey).toList();
+        // A description made mostly of words we've never been corrected on is the LLM's job.
+        // Coverage counts single words only; unseen bigrams are expected and shouldn't veto a prediction.
+        long words = tokens.stream().filter(token -> token.indexOf(' ') < 0).count();
+        long knownWords = known.stream().filter(token -> token.indexOf(' ') < 0).count();
+        if (knownWords == 0 || (double) knownWords / words < minKnownWordRatio) {
+            return Optional.empty();
+        }
+
+        int vocabularySize = vocabulary.size();
+        String best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        Map<String, Double> scores = new HashMap<>();
+
+        for (Map.Entry<String, CategoryStats> entry : categories.entrySet()) {
+            CategoryStats stats = entry.getValue();
+            double score = Math.log((double) stats.examples / exampleCount);
+            double denominator = stats.tokenTotal + vocabularySize;
+            for (String token : known) {
+                // Laplace smoothing so one unseen token doesn't zero out a category
+                score += Math.log((stats.tokenCounts.getOrDefault(token, 0) + 1) / denominator);
+            }
+            scores.put(entry.getKey(), score);
+            if (score > bestScore) {
+                bestScore = score;
+                best = entry.getKey();
+            }
+        }
+
+        // Posterior of the winner, computed relative to the best score to stay clear of underflow
+        double normalizer = 0;
+        for (double score : scores.values()) {
+            normalizer += Math.exp(score - bestScore);
+        }
+        double posterior = 1.0 / normalizer;
+
+        if (posterior < minConfidence) {
+            return Optional.empty();
+        }
+        return Optional.of(new AiCategorizationResult(best, null, null, posterior,
+                "Predicted from manual corrections", false));
+    }
+
+    private void remove(Long expenseId, Correction correction) {
+        updateCounts(correction, -1);
+        // Other expenses corrected with the same description keep answering exact matches
+        Map<Long, Correction> sameKey = correctionsByKey.get(correction.key());
+        sameKey.remove(expenseId);
+        if (sameKey.isEmpty()) {
+            correctionsByKey.remove(correction.key());
+        }
+    }
+
+    private static Correction newest(Map<Long, Correction> sameKey) {
+        Correction newest = null;
+        if (sameKey != null) {
+            for (Correction correction : sameKey.values()) {
+                newest = correction;
+            }
+        }
+        return newest;
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private void updateCounts(Correction correction, int delta) {
+        CategoryStats stats = categories.computeIfAbsent(correction.category(), c -> new CategoryStats());
+        stats.examples += delta;
+        exampleCount += delta;
+
+        for (String token : tokenize(correction.key())) {
+            stats.tokenCounts.merge(token, delta, Integer::sum);
+            stats.tokenCounts.remove(token, 0);
+            stats.tokenTotal += delta;
+            vocabulary.merge(token, delta, Integer::sum);
+            vocabulary.remove(token, 0);
+        }
+
+        if (stats.examples == 0) {
+            categories.remove(correction.category());
+        }
+    }
+
+    private static List<String> tokenize(String normalized) {
+        String[] words = normalized.split(" ");
+        List<String> tokens = new ArrayList<>(words.length * 2);
+        for (int i = 0; i < words.length; i++) {
+            tokens.add(words[i]);
+            if (i > 0) {
+                tokens.add(words[i - 1] + ' ' + words[i]);
+            }
+        }
+        return tokens;
+    }
+
+    private record Correction(String key, String category, String subCategory, String merchantName) {
+    }
+
+    private static final class CategoryStats {
+        private final Map<String, Integer> tokenCounts = new HashMap<>();
+        private int tokenTotal;
+        private int examples;
+    }
+}
@@ -0,0 +1,353 @@
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.ExpenseEvent;
+import dto.ExpenseResponse;
+import dto.MonthlyCategoryDelta;
+import io.micrometer.core.instrument.MeterRegistry;
+import model.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Pushes committed expense changes to server-sent event subscribers, each with the summary delta it implies.
+// The writing thread serializes an event once and offers it to every subscriber's bounded buffer, which never
+// blocks; a few sender threads do the socket writes, a few events per subscriber at a time. A subscriber whose
+// buffer is full is disconnected rather than buffered without limit: its client reconnects and refetches.
+// Socket writes block, so a client that stops reading parks its sender thread. Once a write has been blocked for
+// write-timeout-ms that client is disconnected too, and the pool gets a thread in place of the parked one until
+// the write returns, so a few stalled clients can't starve everyone else. Only writes made on this instance are
+// pushed.
+@Service
+public class ExpenseEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseEventPublisher.class);
+
+    public static final String CREATED = "created";
+    public static final String CATEGORY_UPDATED = "category-updated";
+    public static final String DELETED = "deleted";
+    public static final String IMPORTED = "imported";
+
+    private static final Message HEARTBEAT = new Message(null, null, null);
+
+    // Sends per turn on a sender thread before the subscriber goes to the back of the queue
+    private static final int SENDS_PER_TURN = 16;
+
+    // Subscriber.sendStartedAt when no write is in progress, and once a write has been declared stalled
+    private static final long IDLE = 0;
+    private static final long STALLED = Long.MIN_VALUE;
+
+    private final boolean enabled;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final Duration timeout;
+    private final long writeTimeoutNanos;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor eventExecutor;
+    private final Lock senderPoolLock = new ReentrantLock();
+    private final ConcurrentMap<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final AtomicLong eventIds = new AtomicLong();
+    private final MeterRegistry meterRegistry;
+
+    public ExpenseEventPublisher(@Value("${expense.events.enabled}") boolean enabled,
+                                 @Value("${expense.events.max-subscribers}") int maxSubscribers,
+                                 @Value("${expense.events.buffer-size}") int bufferSize,
+                                 @Value("${expense.events.timeout-minutes}") long timeoutMinutes,
+                                 @Value("${expense.events.write-timeout-ms}") long writeTimeoutMs,
+                                 ObjectMapper objectMapper,
+                                 @Qualifier("eventExecutor") ThreadPoolTaskExecutor eventExecutor,
+                                 MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.timeout = Duration.ofMinutes(timeoutMinutes);
+        this.writeTimeoutNanos = Duration.ofMillis(writeTimeoutMs).toNanos();
+        this.objectMapper = objectMapper;
+        this.eventExecutor = eventExecutor;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("expense.events.subscribers", subscribers, ConcurrentMap::size);
+    }
+
+    // Empty when push is disabled or this instance already serves max-subscribers
+    public Optional<SseEmitter> subscribe() {
+        if (!enabled || subscribers.size() >= maxSubscribers) {
+            return Optional.empty();
+        }
+
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), createEmitter(timeout.toMillis()),
+                new ArrayBlockingQueue<>(bufferSize));
+        SseEmitter emitter = subscriber.emitter();
+        emitter.onCompletion(() -> subscribers.remove(subscriber.id()));
+        emitter.onTimeout(() -> {
+            subscribers.remove(subscriber.id());
+            emitter.complete();
+        });
+        emitter.onError(e -> subscribers.remove(subscriber.id()));
+        subscribers.put(subscriber.id(), subscriber);
+
+        // Gets the response headers out now instead of at the first change
+        enqueue(subscriber, HEARTBEAT);
+        log.debug("Event subscriber {} connected ({} total)", subscriber.id(), subscribers.size());
+        return Optional.of(emitter);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // Writers call these inside their transaction, next to the rollup updates; nothing is sent unless it commits
+
+    public void expenseAdded(Expense expense) {
+        if (hasSubscribers()) {
+            publishAfterCommit(CREATED, ExpenseService.mapToResponse(expense),
+                    List.of(delta(expense, expense.getCategory(), 1)));
+        }
+    }
+
+    public void expensesAdded(Collection<Expense> added) {
+        if (!hasSubscribers()) {
+            return;
+        }
+        // One event per chunk: an import of thousands of rows would otherwise overflow every buffer
+        Map<List<String>, MonthlyCategoryDelta> deltas = new LinkedHashMap<>();
+        for (Expense expense : added) {
+            MonthlyCategoryDelta delta = delta(expense, expense.getCategory(), 1);
+            deltas.merge(List.of(delta.getMonth(), delta.getCategory()), delta, (sum, next) -> {
+                sum.setAmount(sum.getAmount().add(next.getAmount()));
+                sum.setExpenseCount(sum.getExpenseCount() + next.getExpenseCount());
+                return sum;
+            });
+        }
+        publishAfterCommit(IMPORTED, null, new ArrayList<>(deltas.values()));
+    }
+
+    public void expenseCategoryChanged(Expense expense, String previousCategory) {
+        if (!hasSubscribers()) {
+            return;
+        }
+        // Sub-category and confidence changes still produce an event, with nothing to add to the summary
+        List<MonthlyCategoryDelta> deltas = Objects.equals(previousCategory, expense.getCategory())
+                ? List.of()
+                : List.of(delta(expense, previousCategory, -1), delta(expense, expense.getCategory(), 1));
+        publishAfterCommit(CATEGORY_UPDATED, ExpenseService.mapToResponse(expense), deltas);
+    }
+
+    public void expenseRemoved(Expense expense) {
+        if (hasSubscribers()) {
+            publishAfterCommit(DELETED, ExpenseService.mapToResponse(expense),
+                    List.of(delta(expense, expense.getCategory(), -1)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${expense.events.heartbeat-ms}")
+    public void sendHeartbeats() {
+        // Keeps idle connections open through proxies, and finds clients that went away without closing
+        subscribers.values().forEach(subscriber -> enqueue(subscriber, HEARTBEAT));
+    }
+
+    @Scheduled(fixedDelayString = "${expense.events.write-timeout-ms}")
+    public void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            long startedAt = subscriber.sendStartedAt().get();
+            if (startedAt == IDLE || startedAt == STALLED || now - startedAt < writeTimeoutNanos
+                    || !subscriber.sendStartedAt().compareAndSet(startedAt, STALLED)) {
+                continue;
+            }
+            drop(subscriber, "write-timeout");
+            // The write can't be interrupted; its thread stays parked until the container's own write timeout
+            // fails it, and is given back once it returns
+            resizeSenderPool(1);
+        }
+    }
+
+    // A new emitter for each subscriber; tests substitute one whose writes block
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private boolean hasSubscribers() {
+        return enabled && !subscribers.isEmpty();
+    }
+
+    private void publishAfterCommit(String type, ExpenseResponse expense, List<MonthlyCategoryDelta> deltas) {
+        ExpenseEvent event = new ExpenseEvent(type, expense, deltas);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(event);
+                }
+            });
+        } else {
+            broadcast(event);
+        }
+    }
+
+    private void broadcast(ExpenseEvent event) {
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize {} event: {}", event.getType(), e.getMessage());
+            return;
+        }
+
+        Message message = new Message(Long.toString(eventIds.incrementAndGet()), event.getType(), data);
+        subscribers.values().forEach(subscriber -> enqueue(subscriber, message));
+        meterRegistry.counter("expense.events.published", "type", event.getType()).increment();
+    }
+
+    private void enqueue(Subscriber subscriber, Message message) {
+        if (!subscriber.buffer().offer(message)) {
+            drop(subscriber, "buffer-full");
+            return;
+        }
+        scheduleDrain(subscriber);
+    }
+
+    private void drop(Subscriber subscriber, String reason) {
+        if (subscribers.remove(subscriber.id()) == null) {
+            return;
+        }
+        subscriber.dropped().set(true);
+        meterRegistry.counter("expense.events.subscribers.dropped", "reason", reason).increment();
+        log.info("Disconnecting event subscriber {} ({}, buffer of {} events)", subscriber.id(), reason, bufferSize);
+        // The sender closes the connection once it is free; it may be blocked on this client's socket right now
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining().compareAndSet(false, true)) {
+            submitDrain(subscriber);
+        }
+    }
+
+    private void submitDrain(Subscriber subscriber) {
+        try {
+            eventExecutor.execute(() -> drain(subscriber));
+        } catch (TaskRejectedException e) {
+            // Each subscriber has at most one drain queued, so this only happens while shutting down
+            subscriber.draining().set(false);
+            subscribers.remove(subscriber.id());
+            subscriber.emitter().complete();
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        int sent = 0;
+        try {
+            while (true) {
+                if (subscriber.dropped().get()) {
+                    subscriber.buffer().clear();
+                    subscriber.emitter().complete();
+                    return;
+                }
+
+                Message message = subscriber.buffer().poll();
+                if (message == null) {
+                    subscriber.draining().set(false);
+                    // Something offered between the poll and clearing the flag found the flag still set,
+                    // so this drain has to deliver it
+                    if ((subscriber.buffer().isEmpty() && !subscriber.dropped().get())
+                            || !subscriber.draining().compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                send(subscriber, message);
+                if (++sent == SENDS_PER_TURN && !subscriber.buffer().isEmpty()) {
+                    // Still flagged as draining, so this stays the subscriber's only pending send
+                    submitDrain(subscriber);
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, or the emitter already completed; Spring reports the error to the emitter
+            log.debug("Event subscriber {} disconnected: {}", subscriber.id(), e.getMessage());
+            subscribers.remove(subscriber.id());
+        }
+    }
+
+    private void send(Subscriber subscriber, Message message) throws IOException {
+        subscriber.sendStartedAt().set(System.nanoTime());
+        try {
+            if (message == HEARTBEAT) {
+                subscriber.emitter().send(SseEmitter.event().comment(""));
+            } else {
+                subscriber.emitter().send(SseEmitter.event().id(message.id()).name(message.name())
+                        .data(message.data()));
+            }
+        } finally {
+            if (subscriber.sendStartedAt().getAndSet(IDLE) == STALLED) {
+                resizeSenderPool(-1);
+            }
+        }
+    }
+
+    private void resizeSenderPool(int change) {
+        // The maximum can never drop below the core size, so it moves first when growing and last when shrinking
+        senderPoolLock.lock();
+        try {
+            int size = eventExecutor.getCorePoolSize() + change;
+            if (change > 0) {
+                eventExecutor.setMaxPoolSize(size);
+                eventExecutor.setCorePoolSize(size);
+            } else {
+                eventExecutor.setCorePoolSize(size);
+                eventExecutor.setMaxPoolSize(size);
+            }
+        } finally {
+            senderPoolLock.unlock();
+        }
+    }
+
+    private static MonthlyCategoryDelta delta(Expense expense, String category, int sign) {
+        BigDecimal amount = sign < 0 ? expense.getAmount().negate() : expense.getAmount();
+        return new MonthlyCategoryDelta(YearMonth.from(expense.getTransactionDate()).toString(), category,
+                amount, sign);
+    }
+
+    // data is the event already serialized to JSON, shared by every subscriber's buffer
+    private record Message(String id, String name, String data) {
+    }
+
+    private record Subscriber(long id, SseEmitter emitter, BlockingQueue<Message> buffer,
+                              AtomicBoolean draining, AtomicBoolean dropped, AtomicLong sendStartedAt) {
+
+        Subscriber(long id, SseEmitter emitter, BlockingQueue<Message> buffer) {
+            this(id, emitter, buffer, new AtomicBoolean(), new AtomicBoolean(), new AtomicLong(IDLE));
+        }
+    }
+}
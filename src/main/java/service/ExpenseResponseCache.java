@@ -0,0 +1,225 @@
+package service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dto.ExpensePage;
+import dto.ExpenseResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import model.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Read-through cache of the responses behind GET /api/expenses/{id} and /api/expenses/category/{category}.
+// Caffeine's W-TinyLFU eviction keeps the expenses the dashboard keeps asking for, even when a scan of one-off
+// lookups passes through. By-ID entries are evicted on every write to the expense. Category lists are keyed by a
+// per-category version instead: a write bumps the version, so a list loaded before the write can't be served after
+// it, even when its load finishes last. The superseded entries age out on their own.
+// Every committed write also bumps a data version, which the list and summary endpoints use as their ETag.
+@Service
+public class ExpenseResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseResponseCache.class);
+
+    private final boolean enabled;
+    private final Cache<Long, ExpenseResponse> expenses;
+    private final Cache<ListKey, Object> lists;
+    private final ConcurrentMap<String, AtomicLong> categoryVersions = new ConcurrentHashMap<>();
+    private final ExpenseResponseStore secondLevel;
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    private final long ttlMillis;
+
+    public ExpenseResponseCache(@Value("${expense.cache.enabled}") boolean enabled,
+                                @Value("${expense.cache.max-expenses}") long maxExpenses,
+                                @Value("${expense.cache.max-list-items}") long maxListItems,
+                                @Value("${expense.cache.ttl-seconds}") long ttlSeconds,
+                                ObjectProvider<ExpenseResponseStore> secondLevel,
+                                MeterRegistry meterRegistry) {
+        if (ttlSeconds < 0) {
+            throw new IllegalArgumentException("expense.cache.ttl-seconds must not be negative");
+        }
+        this.enabled = enabled;
+        // 0 turns time-based expiry off, for entries and ETags alike
+        this.ttlMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.expenses = expiring(Caffeine.newBuilder()
+                .maximumSize(maxExpenses)
+                .recordStats())
+                .build();
+        // Weighed by item count, so one huge category costs what it holds; a list over the limit isn't kept at all
+        this.lists = expiring(Caffeine.newBuilder()
+                .maximumWeight(maxListItems)
+                .weigher((ListKey key, Object value) -> 1 + itemCount(value))
+                .recordStats())
+                .build();
+        this.secondLevel = secondLevel.getIfAvailable();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, expenses, "expenses.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, lists, "expenses.by-category");
+        meterRegistry.gauge("expense.cache.hit.ratio", Tags.of("cache", "expenses.by-id"), expenses,
+                cache -> cache.stats().hitRate());
+        meterRegistry.gauge("expense.cache.hit.ratio", Tags.of("cache", "expenses.by-category"), lists,
+                cache -> cache.stats().hitRate());
+
+        if (this.secondLevel != null) {
+            log.info("Expense response cache backed by {}", this.secondLevel.getClass().getSimpleName());
+        }
+    }
+
+    public ExpenseResponse getExpense(Long id, Supplier<ExpenseResponse> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        // A loader that throws (expense not found) caches nothing
+        return expenses.get(id, key -> loadExpense(key, loader));
+    }
+
+    public List<ExpenseResponse> getCategoryList(String category, Supplier<List<ExpenseResponse>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        @SuppressWarnings("unchecked")
+        List<ExpenseResponse> list = (List<ExpenseResponse>) lists.get(
+                new ListKey(category, version(category), null, 0), key -> List.copyOf(loader.get()));
+        return list;
+    }
+
+    public ExpensePage getCategoryPage(String category, String cursor, int limit, Supplier<ExpensePage> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return (ExpensePage) lists.get(new ListKey(category, version(category), cursor, limit), key -> {
+            ExpensePage page = loader.get();
+            return new ExpensePage(List.copyOf(page.getItems()), page.getNextCursor());
+        });
+    }
+
+    // Changes after every committed write. The startup time keeps a tag from a previous run or another instance
+    // from matching, and the time bucket bounds how long a write on another instance can go unnoticed, as for the
+    // cached entries.
+    public String dataVersionTag() {
+        String tag = instanceTag + '-' + dataVersion.get();
+        return ttlMillis == 0 ? tag : tag + '-' + System.currentTimeMillis() / ttlMillis;
+    }
+
+    private <K, V> Caffeine<K, V> expiring(Caffeine<K, V> builder) {
+        return ttlMillis == 0 ? builder : builder.expireAfterWrite(Duration.ofMillis(ttlMillis));
+    }
+
+    // Writers call these inside their transaction; the invalidation runs once it commits, so a reader can't
+    // reload the old row between the eviction and the commit
+
+    public void expenseAdded(Expense expense) {
+        afterCommit(() -> bumpCategories(Arrays.asList(expense.getCategory())));
+    }
+
+    public void expensesAdded(Collection<Expense> added) {
+        Set<String> categories = new LinkedHashSet<>();
+        added.forEach(expense -> categories.add(expense.getCategory()));
+        afterCommit(() -> bumpCategories(categories));
+    }
+
+    public void expenseUpdated(Expense expense, String previousCategory) {
+        Long id = expense.getId();
+        String category = expense.getCategory();
+        afterCommit(() -> {
+            evictExpense(id);
+            bumpCategories(Arrays.asList(previousCategory, category));
+        });
+    }
+
+    public void expenseRemoved(Expense expense) {
+        Long id = expense.getId();
+        String category = expense.getCategory();
+        afterCommit(() -> {
+            evictExpense(id);
+            bumpCategories(Arrays.asList(category));
+        });
+    }
+
+    private ExpenseResponse loadExpense(Long id, Supplier<ExpenseResponse> loader) {
+        if (secondLevel != null) {
+            Optional<ExpenseResponse> stored = secondLevel.get(id);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+        }
+
+        ExpenseResponse response = loader.get();
+        if (secondLevel != null) {
+            secondLevel.put(response);
+        }
+        return response;
+    }
+
+    private void evictExpense(Long id) {
+        // Waits out a load of the same ID that is in progress, so the row it read can't outlive this call
+        expenses.invalidate(id);
+        if (secondLevel != null) {
+            secondLevel.evict(id);
+        }
+    }
+
+    private long version(String category) {
+        // Only writes create a counter, so looking up arbitrary category names doesn't grow the map
+        AtomicLong version = categoryVersions.get(category);
+        return version == null ? 0 : version.get();
+    }
+
+    private void bumpCategories(Collection<String> categories) {
+        for (String category : new LinkedHashSet<>(categories)) {
+            if (category != null) {
+                categoryVersions.computeIfAbsent(category, key -> new AtomicLong()).incrementAndGet();
+            }
+        }
+    }
+
+    private void afterCommit(Runnable invalidation) {
+        // The data version moves even with the cache disabled; conditional GETs don't depend on it
+        Runnable onCommit = () -> {
+            if (enabled) {
+                invalidation.run();
+            }
+            dataVersion.incrementAndGet();
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    onCommit.run();
+                }
+            });
+        } else {
+            onCommit.run();
+        }
+    }
+
+    private static int itemCount(Object value) {
+        if (value instanceof ExpensePage page) {
+            return page.getItems().size();
+        }
+        return ((List<?>) value).size();
+    }
+
+    // cursor and limit are null and 0 for the unpaged list
+    private record ListKey(String category, long version, String cursor, int limit) {
+    }
+}
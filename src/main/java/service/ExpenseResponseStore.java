@@ -0,0 +1,17 @@
+package service;
+
+import dto.ExpenseResponse;
+
+import java.util.Optional;
+
+// Second-level store behind ExpenseResponseCache's by-ID entries, such as a cache shared by every instance.
+// Define a bean implementing it to enable it. Misses in the in-process cache read from here before the database,
+// and every write evicts the expense here too. Implementations should swallow their own outages and report a miss.
+public interface ExpenseResponseStore {
+
+    Optional<ExpenseResponse> get(Long id);
+
+    void put(ExpenseResponse response);
+
+    void evict(Long id);
+}
@@ -1,41 +1,93 @@
 package service;
 
 import dto.*;
+import exception.BulkImportException;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
 import model.Expense;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import model.CategorizationStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import repo.ExpenseRepository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ExpenseService {
 
     private static final Logger log = LoggerFactory.getLogger(ExpenseService.class);
+
+    // Sorts after every real transaction date, so it stands in for "no cursor" on the first page
+    private static final LocalDateTime FIRST_PAGE_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
     private final ExpenseRepository expenseRepository;
     private final ClaudeAiService claudeAiService;
-
-    public ExpenseService(ExpenseRepository expenseRepository, ClaudeAiService claudeAiService) {
+    private final AsyncCategorizationService asyncCategorizationService;
+    private final RollupService rollupService;
+    private final ExpenseResponseCache responseCache;
+    private final ExpenseEventPublisher eventPublisher;
+    private final CorrectionClassifier correctionClassifier;
+    private final CategorizationOutbox categorizationOutbox;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${categorization.async.enabled}")
+    private boolean asyncCategorization;
+
+    @Value("${expense.bulk.chunk-size}")
+    private int bulkChunkSize;
+
+    @Value("${expense.page.max-size}")
+    private int maxPageSize;
+
+    public ExpenseService(ExpenseRepository expenseRepository, ClaudeAiService claudeAiService,
+                          AsyncCategorizationService asyncCategorizationService, RollupService rollupService,
+                          ExpenseResponseCache responseCache, ExpenseEventPublisher eventPublisher,
+                          CorrectionClassifier correctionClassifier, CategorizationOutbox categorizationOutbox,
+                          EntityManager entityManager, Validator validator,
+                          PlatformTransactionManager transactionManager) {
         this.expenseRepository = expenseRepository;
         this.claudeAiService = claudeAiService;
+        this.asyncCategorizationService = asyncCategorizationService;
+        this.rollupService = rollupService;
+        this.responseCache = responseCache;
+        this.eventPublisher = eventPublisher;
+        this.correctionClassifier = correctionClassifier;
+        this.categorizationOutbox = categorizationOutbox;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    // Not @Transactional: the Claude round-trip runs with no transaction open, so no pooled connection waits on it.
+    // Only the writes run in a transaction, and it stays as short as the inserts themselves.
     public ExpenseResponse createExpense(ExpenseRequest request) {
         log.info("Creating expense: {}", request.getDescription());
 
+        if (asyncCategorization) {
+            return createPendingExpense(request);
+        }
+
         // Use AI to categorize the expense
         AiCategorizationResult aiResult = claudeAiService.categorizeExpense(
                 request.getDescription(),
@@ -53,9 +105,22 @@ public class ExpenseService {
         expense.setTransactionDate(request.getTransactionDate() != null ?
                 request.getTransactionDate() : LocalDateTime.now());
         expense.setManuallyUpdated(false);
+        expense.setCategorizationStatus(aiResult.isFallback()
+                ? CategorizationStatus.FAILED
+                : CategorizationStatus.CATEGORIZED);
 
         // Save to database
-        Expense savedExpense = expenseRepository.save(expense);
+        Expense savedExpense = transactionTemplate.execute(status -> {
+            Expense saved = expenseRepository.save(expense);
+            rollupService.recordAdded(saved);
+            responseCache.expenseAdded(saved);
+            eventPublisher.expenseAdded(saved);
+            if (aiResult.isFallback()) {
+                // Claude was unavailable; retry in the background rather than leave it in the fallback category
+                categorizationOutbox.enqueue(saved.getId());
+            }
+            return saved;
+        });
 
         log.info("Expense created with ID: {} and category: {}",
                 savedExpense.getId(), savedExpense.getCategory());
@@ -63,25 +128,180 @@ public class ExpenseService {
         return mapToResponse(savedExpense);
     }
 
+    private ExpenseResponse createPendingExpense(ExpenseRequest request) {
+        Expense expense = new Expense();
+        expense.setDescription(request.getDescription());
+        expense.setAmount(request.getAmount());
+        expense.setCategory(AsyncCategorizationService.PENDING_CATEGORY);
+        expense.setTransactionDate(request.getTransactionDate() != null ?
+                request.getTransactionDate() : LocalDateTime.now());
+        expense.setManuallyUpdated(false);
+        expense.setCategorizationStatus(CategorizationStatus.PENDING);
+
+        Expense savedExpense = transactionTemplate.execute(status -> {
+            Expense saved = expenseRepository.save(expense);
+            rollupService.recordAdded(saved);
+            responseCache.expenseAdded(saved);
+            eventPublisher.expenseAdded(saved);
+
+            if (categorizationOutbox.isEnabled()) {
+                categorizationOutbox.enqueue(saved.getId());
+            } else {
+                asyncCategorizationService.submitAfterCommit(
+                        saved.getId(), saved.getDescription(), saved.getAmount());
+            }
+            return saved;
+        });
+
+        log.info("Expense created with ID: {}, categorization pending", savedExpense.getId());
+
+        return mapToResponse(savedExpense);
+    }
+
+    // Changes after every committed write to any expense, so equal tags mean equal list and summary responses
+    public String getDataVersion() {
+        return responseCache.dataVersionTag();
+    }
+
+    public BulkExpenseResponse importExpenses(Iterator<ExpenseRequest> requests) {
+        log.info("Importing expenses in chunks of {}", bulkChunkSize);
+
+        BulkExpenseResponse result = new BulkExpenseResponse();
+        List<ExpenseRequest> chunk = new ArrayList<>(bulkChunkSize);
+
+        while (true) {
+            ExpenseRequest request;
+            try {
+                if (!requests.hasNext()) {
+                    break;
+                }
+                request = requests.next();
+            } catch (RuntimeException e) {
+                // Earlier chunks are committed already; import the rest read so far too, so that everything
+                // before the bad item is in and the client can resume right after it
+                if (!chunk.isEmpty()) {
+                    importChunk(chunk, result);
+                }
+                log.warn("Bulk import stopped by malformed input after {} items ({} created)",
+                        result.getReceived(), result.getCreated());
+                throw new BulkImportException(result, e);
+            }
+            result.setReceived(result.getReceived() + 1);
+
+            if (request == null || !validator.validate(request).isEmpty()) {
+                result.setRejected(result.getRejected() + 1);
+                continue;
+            }
+
+            chunk.add(request);
+            if (chunk.size() == bulkChunkSize) {
+                importChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, result);
+        }
+
+        log.info("Bulk import finished: {} received, {} created, {} rejected",
+                result.getReceived(), result.getCreated(), result.getRejected());
+
+        return result;
+    }
+
+    private void importChunk(List<ExpenseRequest> chunk, BulkExpenseResponse result) {
+        // Categorize before opening the transaction so no connection is held during the Claude calls
+        List<AiCategorizationResult> aiResults = claudeAiService.categorizeExpenses(chunk);
+
+        List<Expense> expenses = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ExpenseRequest request = chunk.get(i);
+            AiCategorizationResult aiResult = aiResults.get(i);
+
+            Expense expense = new Expense();
+            expense.setDescription(request.getDescription());
+            expense.setAmount(request.getAmount());
+            expense.setCategory(aiResult.getCategory());
+            expense.setSubCategory(aiResult.getSubCategory());
+            expense.setMerchantName(aiResult.getMerchantName());
+            expense.setConfidenceScore(aiResult.getConfidenceScore());
+            expense.setTransactionDate(request.getTransactionDate() != null ?
+                    request.getTransactionDate() : LocalDateTime.now());
+            expense.setManuallyUpdated(false);
+            expense.setCategorizationStatus(aiResult.isFallback()
+                    ? CategorizationStatus.FAILED
+                    : CategorizationStatus.CATEGORIZED);
+            expenses.add(expense);
+
+            if (aiResult.isFallback()) {
+                result.setFallbackCategorized(result.getFallbackCategorized() + 1);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            expenseRepository.saveAll(expenses);
+            rollupService.recordAdded(expenses);
+            responseCache.expensesAdded(expenses);
+            eventPublisher.expensesAdded(expenses);
+            categorizationOutbox.enqueue(expenses.stream()
+                    .filter(expense -> expense.getCategorizationStatus() == CategorizationStatus.FAILED)
+                    .map(Expense::getId)
+                    .toList());
+            entityManager.flush();
+            // Keep the persistence context from growing with every chunk of a large import
+            entityManager.clear();
+        });
+
+        result.setCreated(result.getCreated() + expenses.size());
+    }
+
     public List<ExpenseResponse> getAllExpenses() {
         log.info("Fetching all expenses");
         return expenseRepository.findAll().stream()
-                .map(this::mapToResponse)
+                .map(ExpenseService::mapToResponse)
                 .collect(Collectors.toList());
     }
 
+    public ExpensePage getExpensesPage(String cursor, int limit) {
+        log.info("Fetching expenses page after cursor {}", cursor);
+        Cursor after = decodeCursor(cursor);
+        int pageSize = pageSize(limit);
+        return toPage(expenseRepository.findPageAfter(after.date(), after.id(), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllExpenses(Consumer<ExpenseResponse> sink) {
+        log.info("Streaming all expenses");
+        streamTo(expenseRepository.streamAll(), sink);
+    }
+
     public ExpenseResponse getExpenseById(Long id) {
         log.info("Fetching expense with ID: {}", id);
-        Expense expense = expenseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Expense not found with ID: " + id));
-        return mapToResponse(expense);
+        return responseCache.getExpense(id, () -> mapToResponse(expenseRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Expense not found with ID: " + id))));
     }
 
     public List<ExpenseResponse> getExpensesByCategory(String category) {
         log.info("Fetching expenses by category: {}", category);
-        return expenseRepository.findByCategory(category).stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return responseCache.getCategoryList(category, () -> expenseRepository.findByCategory(category).stream()
+                .map(ExpenseService::mapToResponse)
+                .collect(Collectors.toList()));
+    }
+
+    public ExpensePage getExpensesByCategoryPage(String category, String cursor, int limit) {
+        log.info("Fetching expenses page by category {} after cursor {}", category, cursor);
+        Cursor after = decodeCursor(cursor);
+        int pageSize = pageSize(limit);
+        return responseCache.getCategoryPage(category, cursor, pageSize, () -> toPage(
+                expenseRepository.findPageByCategoryAfter(category, after.date(), after.id(),
+                        Limit.of(pageSize + 1)), pageSize));
+    }
+
+    @Transactional(readOnly = true)
+    public void streamExpensesByCategory(String category, Consumer<ExpenseResponse> sink) {
+        log.info("Streaming expenses by category: {}", category);
+        streamTo(expenseRepository.streamByCategory(category), sink);
     }
 
     @Transactional
@@ -91,11 +311,16 @@ public class ExpenseService {
         Expense expense = expenseRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Expense not found with ID: " + id));
 
+        String previousCategory = expense.getCategory();
         expense.setCategory(request.getCategory());
         expense.setSubCategory(request.getSubCategory());
         expense.setManuallyUpdated(true);
 
         Expense updatedExpense = expenseRepository.save(expense);
+        rollupService.recordCategoryChanged(updatedExpense, previousCategory);
+        responseCache.expenseUpdated(updatedExpense, previousCategory);
+        eventPublisher.expenseCategoryChanged(updatedExpense, previousCategory);
+        correctionClassifier.learn(updatedExpense);
 
         log.info("Category updated to: {}", updatedExpense.getCategory());
 
@@ -106,79 +331,151 @@ public class ExpenseService {
     public void deleteExpense(Long id) {
         log.info("Deleting expense with ID: {}", id);
 
-        if (!expenseRepository.existsById(id)) {
-            throw new RuntimeException("Expense not found with ID: " + id);
-        }
+        Expense expense = expenseRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Expense not found with ID: " + id));
 
-        expenseRepository.deleteById(id);
+        expenseRepository.delete(expense);
+        rollupService.recordRemoved(expense);
+        responseCache.expenseRemoved(expense);
+        eventPublisher.expenseRemoved(expense);
+        correctionClassifier.forget(expense.getId());
         log.info("Expense deleted successfully");
     }
 
     public ExpenseSummary getSummary() {
         log.info("Generating expense summary");
 
-        List<Expense> allExpenses = expenseRepository.findAll();
+        if (rollupService.isEnabled()) {
+            return generateSummary(rollupService.getCategoryTotals());
+        }
 
-        return generateSummary(allExpenses);
+        return generateSummary(expenseRepository.getCategorySummary());
     }
 
     public ExpenseSummary getMonthlySummary(int year, int month) {
         log.info("Generating monthly summary for {}/{}", month, year);
 
         YearMonth yearMonth = YearMonth.of(year, month);
+        if (rollupService.isEnabled()) {
+            return generateSummary(rollupService.getCategoryTotals(yearMonth));
+        }
+
         LocalDateTime startDate = yearMonth.atDay(1).atStartOfDay();
         LocalDateTime endDate = yearMonth.atEndOfMonth().atTime(23, 59, 59);
 
-        List<Expense> monthlyExpenses = expenseRepository.findByTransactionDateBetween(
-                startDate, endDate
-        );
-
-        return generateSummary(monthlyExpenses);
+        return generateSummary(expenseRepository.getCategorySummaryByDateRange(startDate, endDate));
     }
 
     public List<ExpenseResponse> getExpensesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         log.info("Fetching expenses between {} and {}", startDate, endDate);
 
         return expenseRepository.findByTransactionDateBetween(startDate, endDate).stream()
-                .map(this::mapToResponse)
+                .map(ExpenseService::mapToResponse)
                 .collect(Collectors.toList());
     }
 
-    private ExpenseSummary generateSummary(List<Expense> expenses) {
-        BigDecimal totalAmount = expenses.stream()
-                .map(Expense::getAmount)
+    public ExpensePage getExpensesByDateRangePage(LocalDateTime startDate, LocalDateTime endDate,
+                                                  String cursor, int limit) {
+        log.info("Fetching expenses page between {} and {} after cursor {}", startDate, endDate, cursor);
+        Cursor after = decodeCursor(cursor);
+        int pageSize = pageSize(limit);
+        return toPage(expenseRepository.findPageByDateRangeAfter(
+                startDate, endDate, after.date(), after.id(), Limit.of(pageSize + 1)), pageSize);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamExpensesByDateRange(LocalDateTime startDate, LocalDateTime endDate,
+                                          Consumer<ExpenseResponse> sink) {
+        log.info("Streaming expenses between {} and {}", startDate, endDate);
+        streamTo(expenseRepository.streamByDateRange(startDate, endDate), sink);
+    }
+
+    private void streamTo(Stream<Expense> expenses, Consumer<ExpenseResponse> sink) {
+        try (expenses) {
+            expenses.forEach(expense -> {
+                sink.accept(mapToResponse(expense));
+                // Rows are written as they are read, so drop each one from the persistence context
+                entityManager.detach(expense);
+            });
+        }
+    }
+
+    private ExpensePage toPage(List<Expense> rows, int pageSize) {
+        // One extra row is fetched only to learn whether another page exists
+        boolean hasMore = rows.size() > pageSize;
+        List<Expense> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+
+        List<ExpenseResponse> items = pageRows.stream()
+                .map(ExpenseService::mapToResponse)
+                .collect(Collectors.toList());
+
+        String nextCursor = hasMore ? encodeCursor(pageRows.get(pageRows.size() - 1)) : null;
+        return new ExpensePage(items, nextCursor);
+    }
+
+    private int pageSize(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private static String encodeCursor(Expense last) {
+        String raw = last.getTransactionDate() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new Cursor(FIRST_PAGE_DATE, Long.MAX_VALUE);
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private record Cursor(LocalDateTime date, Long id) {
+    }
+
+    static ExpenseSummary generateSummary(List<CategoryTotal> categoryTotals) {
+        // Totals arrive pre-aggregated from the database, so this is O(categories) rather than O(expenses)
+        BigDecimal totalAmount = categoryTotals.stream()
+                .map(CategoryTotal::getAmount)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        // Group by category and calculate totals
-        List<ExpenseSummary.CategorySummary> categoryBreakdown = expenses.stream()
-                .collect(Collectors.groupingBy(
-                        Expense::getCategory,
-                        Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)
-                ))
-                .entrySet().stream()
-                .map(entry -> {
-                    String category = entry.getKey();
-                    BigDecimal amount = entry.getValue();
+        long totalExpenses = categoryTotals.stream()
+                .mapToLong(CategoryTotal::getExpenseCount)
+                .sum();
+
+        List<ExpenseSummary.CategorySummary> categoryBreakdown = categoryTotals.stream()
+                .map(categoryTotal -> {
+                    BigDecimal amount = categoryTotal.getAmount();
                     double percentage = totalAmount.compareTo(BigDecimal.ZERO) > 0
                             ? amount.divide(totalAmount, 4, RoundingMode.HALF_UP)
                             .multiply(BigDecimal.valueOf(100))
                             .doubleValue()
                             : 0.0;
 
-                    return new ExpenseSummary.CategorySummary(category, amount, percentage);
+                    return new ExpenseSummary.CategorySummary(categoryTotal.getCategory(), amount, percentage);
                 })
                 .sorted((a, b) -> b.getAmount().compareTo(a.getAmount()))
                 .collect(Collectors.toList());
 
         ExpenseSummary summary = new ExpenseSummary();
         summary.setTotalAmount(totalAmount);
-        summary.setTotalExpenses(expenses.size());
+        summary.setTotalExpenses((int) totalExpenses);
         summary.setCategoryBreakdown(categoryBreakdown);
 
         return summary;
     }
 
-    private ExpenseResponse mapToResponse(Expense expense) {
+    static ExpenseResponse mapToResponse(Expense expense) {
         ExpenseResponse response = new ExpenseResponse();
         response.setId(expense.getId());
         response.setDescription(expense.getDescription());
@@ -190,6 +487,7 @@ public class ExpenseService {
         response.setTransactionDate(expense.getTransactionDate());
         response.setCreatedAt(expense.getCreatedAt());
         response.setManuallyUpdated(expense.isManuallyUpdated());
+        response.setCategorizationStatus(expense.getCategorizationStatus());
         return response;
     }
 }
\ No newline at end of file
@@ -0,0 +1,245 @@
+package service;
+
+import dto.AiCategorizationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+// Merchant patterns are compiled into an Aho-Corasick automaton with a dense transition table,
+// so matching costs one array lookup per character however many patterns the dictionary holds
+@Service
+public class MerchantClassifier {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantClassifier.class);
+
+    // Normalized descriptions only contain A-Z, 0-9, '&' and single spaces
+    private static final int ALPHABET_SIZE = 38;
+    private static final int SPACE = 37;
+
+    private final boolean enabled;
+    private final double minConfidence;
+
+    private final List<MerchantRule> rules = new ArrayList<>();
+
+    private int[] transitions = new int[ALPHABET_SIZE * 1024];
+    private int[] ruleAtNode = new int[1024];
+    private int[] depth = new int[1024];
+    private int[] failLink;
+    private int[] outputLink;
+    private int nodeCount = 1;
+
+    public MerchantClassifier(@Value("${categorization.rules.enabled}") boolean enabled,
+                              @Value("${categorization.rules.min-confidence}") double minConfidence,
+                              @Value("${categorization.rules.dictionary}") Resource dictionary) {
+        this.enabled = enabled;
+        this.minConfidence = minConfidence;
+
+        Arrays.fill(transitions, -1);
+        Arrays.fill(ruleAtNode, -1);
+
+        if (enabled) {
+            loadDictionary(dictionary);
+        }
+        buildLinks();
+
+        log.info("Merchant classifier loaded {} patterns into {} automaton states", rules.size(), nodeCount);
+    }
+
+    public Optional<AiCategorizationResult> classify(String description) {
+        if (!enabled || rules.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String text = CategorizationCache.normalize(description);
+        int node = 0;
+        int bestRule = -1;
+        int bestLength = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            node = transitions[node * ALPHABET_SIZE + symbolOf(text.charAt(i))];
+
+            int candidate = ruleAtNode[node] >= 0 ? node : outputLink[node];
+            for (; candidate > 0; candidate = outputLink[candidate]) {
+                int length = depth[candidate];
+                int start = i - length + 1;
+                // Only whole-word matches count, so "SHELL" doesn't fire on "SHELLFISH"
+                boolean wordStart = start == 0 || text.charAt(start - 1) == ' ';
+                boolean wordEnd = i + 1 == text.length() || text.charAt(i + 1) == ' ';
+                if (!wordStart || !wordEnd) {
+                    continue;
+                }
+
+                int rule = ruleAtNode[candidate];
+                if (length > bestLength || (length == bestLength
+                        && rules.get(rule).confidence() > rules.get(bestRule).confidence())) {
+                    bestRule = rule;
+                    bestLength = length;
+                }
+            }
+        }
+
+        if (bestRule < 0) {
+            return Optional.empty();
+        }
+
+        MerchantRule rule = rules.get(bestRule);
+        log.debug("Merchant rule '{}' matched: {}", rule.pattern(), description);
+        return Optional.of(new AiCategorizationResult(
+                rule.category(),
+                rule.subCategory(),
+                rule.merchantName(),
+                rule.confidence(),
+                "Matched merchant rule: " + rule.pattern(),
+                false
+        ));
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    private void loadDictionary(Resource dictionary) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(dictionary.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split(",", -1);
+                if (fields.length != 5) {
+                    log.warn("Skipping malformed merchant dictionary line: {}", line);
+                    continue;
+                }
+
+                String pattern = CategorizationCache.normalize(fields[0]);
+                double confidence = Double.parseDouble(fields[4].trim());
+                if (confidence < minConfidence) {
+                    // It could never answer, and as the longest match it would hide a shorter rule that can
+                    log.warn("Skipping merchant rule '{}' below min-confidence {}", pattern, minConfidence);
+                    continue;
+                }
+                if (!pattern.isEmpty()) {
+                    addRule(new MerchantRule(pattern, fields[1].trim(), emptyToNull(fields[2]),
+                            emptyToNull(fields[3]), confidence));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load merchant dictionary " + dictionary, e);
+        }
+    }
+
+    private void addRule(MerchantRule rule) {
+        int node = 0;
+        for (int i = 0; i < rule.pattern().length(); i++) {
+            int slot = node * ALPHABET_SIZE + symbolOf(rule.pattern().charAt(i));
+            int child = transitions[slot];
+            if (child < 0) {
+                // Not transitions[slot] = newNode(...): newNode may replace the array the slot is written to
+                child = newNode(depth[node] + 1);
+                transitions[slot] = child;
+            }
+            node = child;
+        }
+
+        int existing = ruleAtNode[node];
+        if (existing >= 0) {
+            // Duplicate pattern: keep the more confident entry
+            if (rules.get(existing).confidence() < rule.confidence()) {
+                rules.set(existing, rule);
+            }
+            return;
+        }
+
+        ruleAtNode[node] = rules.size();
+        rules.add(rule);
+    }
+
+    private int newNode(int nodeDepth) {
+        if (nodeCount == ruleAtNode.length) {
+            int capacity = ruleAtNode.length * 2;
+            int oldTransitions = transitions.length;
+            transitions = Arrays.copyOf(transitions, capacity * ALPHABET_SIZE);
+            Arrays.fill(transitions, oldTransitions, transitions.length, -1);
+            int oldNodes = ruleAtNode.length;
+            ruleAtNode = Arrays.copyOf(ruleAtNode, capacity);
+            Arrays.fill(ruleAtNode, oldNodes, capacity, -1);
+            depth = Arrays.copyOf(depth, capacity);
+        }
+        depth[nodeCount] = nodeDepth;
+        return nodeCount++;
+    }
+
+    private void buildLinks() {
+        transitions = Arrays.copyOf(transitions, nodeCount * ALPHABET_SIZE);
+        ruleAtNode = Arrays.copyOf(ruleAtNode, nodeCount);
+        depth = Arrays.copyOf(depth, nodeCount);
+        failLink = new int[nodeCount];
+        outputLink = new int[nodeCount];
+        Arrays.fill(outputLink, -1);
+
+        // Breadth-first, turning the trie into a complete DFA: missing transitions borrow the fail state's
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+            int child = transitions[symbol];
+            if (child < 0) {
+                transitions[symbol] = 0;
+            } else {
+                failLink[child] = 0;
+                queue.add(child);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int fail = failLink[node];
+            outputLink[node] = ruleAtNode[fail] >= 0 ? fail : outputLink[fail];
+
+            for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+                int slot = node * ALPHABET_SIZE + symbol;
+                int child = transitions[slot];
+                if (child < 0) {
+                    transitions[slot] = transitions[fail * ALPHABET_SIZE + symbol];
+                } else {
+                    failLink[child] = transitions[fail * ALPHABET_SIZE + symbol];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    private static int symbolOf(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + (c - '0');
+        }
+        return c == '&' ? 36 : SPACE;
+    }
+
+    private static String emptyToNull(String value) {
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private record MerchantRule(String pattern, String category, String subCategory,
+                                String merchantName, double confidence) {
+    }
+}
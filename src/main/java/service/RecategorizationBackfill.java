@@ -0,0 +1,480 @@
+package service;
+
+import dto.AiCategorizationResult;
+import dto.ExpenseRequest;
+import dto.RecategorizationRequest;
+import dto.RecategorizationRunResponse;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import model.CategorizationStatus;
+import model.Expense;
+import model.RecategorizationRun;
+import model.RecategorizationRunStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import repo.ExpenseRepository;
+import repo.RecategorizationRunRepository;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static model.RecategorizationRunStatus.CANCELLED;
+import static model.RecategorizationRunStatus.PAUSED;
+import static model.RecategorizationRunStatus.RUNNING;
+
+// Redoes categorizations that came back as the fallback or with low confidence, e.g. after a Claude outage or a
+// prompt change. A run walks the expenses by keyset over id, one window of concurrency x batch-size candidates at
+// a time, and commits each window's results together with its checkpoint, so a paused, crashed or redeployed run
+// picks up after the last committed window on whichever instance claims it next. A candidate Claude could only
+// answer with the fallback holds the checkpoint until a later scan gets a real answer for it. Claude calls are rate
+// limited and hold off while live traffic needs the bulkhead, so a run can be left going during business hours.
+@Service
+public class RecategorizationBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(RecategorizationBackfill.class);
+
+    private static final long CAPACITY_POLL_MS = 200;
+
+    private final RecategorizationRunRepository runRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ClaudeAiService claudeAiService;
+    private final RollupService rollupService;
+    private final ExpenseResponseCache responseCache;
+    private final ExpenseEventPublisher eventPublisher;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final RateLimiter rateLimiter;
+    private final AsyncTaskExecutor backfillExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName();
+
+    // This instance scans one run at a time, on one backfillExecutor thread
+    private final AtomicBoolean scanning = new AtomicBoolean();
+
+    @Value("${categorization.backfill.default-confidence-threshold}")
+    private double defaultConfidenceThreshold;
+
+    @Value("${categorization.backfill.batch-size}")
+    private int batchSize;
+
+    @Value("${categorization.backfill.concurrency}")
+    private int concurrency;
+
+    @Value("${categorization.backfill.reserved-claude-calls}")
+    private int reservedClaudeCalls;
+
+    @Value("${categorization.backfill.stale-after-seconds}")
+    private long staleAfterSeconds;
+
+    @Value("${categorization.backfill.max-fallback-retries}")
+    private int maxFallbackRetries;
+
+    public RecategorizationBackfill(RecategorizationRunRepository runRepository, ExpenseRepository expenseRepository,
+                                    ClaudeAiService claudeAiService, RollupService rollupService,
+                                    ExpenseResponseCache responseCache, ExpenseEventPublisher eventPublisher,
+                                    CircuitBreaker circuitBreaker, Bulkhead bulkhead, RateLimiter rateLimiter,
+                                    @Qualifier("backfillExecutor") AsyncTaskExecutor backfillExecutor,
+                                    PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.runRepository = runRepository;
+        this.expenseRepository = expenseRepository;
+        this.claudeAiService = claudeAiService;
+        this.rollupService = rollupService;
+        this.responseCache = responseCache;
+        this.eventPublisher = eventPublisher;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.rateLimiter = rateLimiter;
+        this.backfillExecutor = backfillExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    // The run starts unclaimed; the next poll on any instance picks it up
+    @Transactional
+    public RecategorizationRunResponse start(RecategorizationRequest request) {
+        if (runRepository.existsByStatusIn(List.of(RUNNING, PAUSED))) {
+            throw new IllegalStateException("A re-categorization run is already in progress");
+        }
+        return create(request);
+    }
+
+    // What start does once its check has found no active run; package-private so a test can take this path the way
+    // a start that raced another one past the check would
+    RecategorizationRunResponse create(RecategorizationRequest request) {
+        Double threshold = request != null ? request.getConfidenceThreshold() : null;
+        LocalDateTime now = LocalDateTime.now();
+        RecategorizationRun run = new RecategorizationRun();
+        run.setStatus(RUNNING);
+        run.setActive(true);
+        run.setConfidenceThreshold(threshold != null ? threshold : defaultConfidenceThreshold);
+        run.setStartedAt(now);
+        run.setUpdatedAt(now);
+        RecategorizationRun saved;
+        try {
+            saved = runRepository.saveAndFlush(run);
+        } catch (DataIntegrityViolationException e) {
+            // Another start got past its check before this insert
+            throw new IllegalStateException("A re-categorization run is already in progress", e);
+        }
+
+        log.info("Started re-categorization run {} for confidence below {}", saved.getId(),
+                saved.getConfidenceThreshold());
+        return toResponse(saved);
+    }
+
+    // A scan ends only after its Claude batches have returned, so once this is false none are out
+    boolean isScanning() {
+        return scanning.get();
+    }
+
+    @Transactional(readOnly = true)
+    public RecategorizationRunResponse getRun(Long id) {
+        return toResponse(findRun(id));
+    }
+
+    @Transactional
+    public RecategorizationRunResponse pause(Long id) {
+        return transition(id, "pause", List.of(RUNNING), PAUSED, false);
+    }
+
+    @Transactional
+    public RecategorizationRunResponse resume(Long id) {
+        return transition(id, "resume", List.of(PAUSED), RUNNING, false);
+    }
+
+    @Transactional
+    public RecategorizationRunResponse cancel(Long id) {
+        return transition(id, "cancel", List.of(RUNNING, PAUSED), CANCELLED, true);
+    }
+
+    private RecategorizationRunResponse transition(Long id, String action, List<RecategorizationRunStatus> from,
+                                                   RecategorizationRunStatus to, boolean finished) {
+        RecategorizationRun run = findRun(id);
+        LocalDateTime now = LocalDateTime.now();
+        if (runRepository.transition(id, from, to, finished ? null : Boolean.TRUE, now, finished ? now : null) == 0) {
+            throw new IllegalStateException(
+                    "Cannot " + action + " re-categorization run " + id + " while it is " + run.getStatus());
+        }
+
+        log.info("Re-categorization run {} is now {}", id, to);
+        return toResponse(findRun(id));
+    }
+
+    private RecategorizationRun findRun(Long id) {
+        return runRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Re-categorization run not found with ID: " + id));
+    }
+
+    // Picks up runs nobody is working on: new and resumed ones, and ones whose instance stopped heartbeating
+    @Scheduled(fixedDelayString = "${categorization.backfill.poll-interval-ms}")
+    public void claimRuns() {
+        if (!scanning.compareAndSet(false, true)) {
+            return;
+        }
+
+        boolean started = false;
+        try {
+            RunClaim claim = claim();
+            if (claim != null) {
+                backfillExecutor.execute(() -> {
+                    try {
+                        scan(claim);
+                    } finally {
+                        scanning.set(false);
+                    }
+                });
+                started = true;
+            }
+        } finally {
+            if (!started) {
+                scanning.set(false);
+            }
+        }
+    }
+
+    private RunClaim claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (RecategorizationRun run : runRepository.findByStatus(RUNNING)) {
+                String claimToken = UUID.randomUUID().toString();
+                if (runRepository.claim(run.getId(), workerId, claimToken, now,
+                        now.minusSeconds(staleAfterSeconds)) == 0) {
+                    continue;
+                }
+                if (run.getClaimToken() != null) {
+                    log.warn("Taking over re-categorization run {} from {}, which stopped heartbeating",
+                            run.getId(), run.getClaimedBy());
+                }
+                return new RunClaim(run.getId(), claimToken, run.getConfidenceThreshold(), run.getLastExpenseId(),
+                        run.getFallbackRetries());
+            }
+            return null;
+        });
+    }
+
+    private void scan(RunClaim claim) {
+        log.info("Worker {} scanning re-categorization run {} after expense {}",
+                workerId, claim.runId(), claim.lastExpenseId());
+
+        long afterId = claim.lastExpenseId();
+        int fallbackRetries = claim.fallbackRetries();
+        try {
+            while (true) {
+                List<Expense> window = expenseRepository.findRecategorizationCandidates(
+                        afterId, claim.threshold(), Limit.of(batchSize * concurrency));
+                if (window.isEmpty()) {
+                    complete(claim);
+                    return;
+                }
+
+                List<AiCategorizationResult> results = categorize(claim, window);
+                if (results == null) {
+                    log.info("Worker {} no longer holds re-categorization run {}, stopping", workerId, claim.runId());
+                    return;
+                }
+
+                // The checkpoint stops short of the first fallback, so the next scan sends that expense again. One
+                // that has held the run for max-fallback-retries scans is passed over and keeps its categorization.
+                boolean passOver = fallbackRetries >= maxFallbackRetries && results.get(0).isFallback();
+                if (passOver) {
+                    log.warn("Re-categorization run {} passing over expense {}, still no answer after {} retries",
+                            claim.runId(), window.get(0).getId(), fallbackRetries);
+                }
+                int processed = firstFallback(results, passOver ? 1 : 0);
+                boolean stalled = processed < window.size();
+                fallbackRetries = !stalled ? 0 : processed == 0 ? fallbackRetries + 1 : 1;
+                long checkpoint = processed > 0 ? window.get(processed - 1).getId() : afterId;
+
+                if (!apply(claim, window.subList(0, processed), results.subList(0, processed), checkpoint,
+                        fallbackRetries)) {
+                    log.info("Worker {} no longer holds re-categorization run {}, stopping", workerId, claim.runId());
+                    return;
+                }
+                if (passOver) {
+                    meterRegistry.counter("categorization.backfill.expenses", "outcome", "skipped").increment();
+                }
+                if (stalled) {
+                    // Same backoff as a failure: the claim goes stale before this or another instance retries
+                    log.info("Re-categorization run {} got the fallback for expense {}, retrying from there later",
+                            claim.runId(), window.get(processed).getId());
+                    return;
+                }
+                afterId = checkpoint;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Re-categorization run {} interrupted, it resumes from its last checkpoint", claim.runId());
+        } catch (RuntimeException | ExecutionException e) {
+            // The claim is left to go stale, which doubles as the backoff before this or another instance retries
+            log.error("Re-categorization run {} failed after expense {}: {}", claim.runId(), afterId, e.getMessage(), e);
+        }
+    }
+
+    // Returns null if the run was paused, cancelled or taken over while waiting for capacity. Either way, it returns
+    // only once every batch it sent has come back, so no Claude call of this scan overlaps the next one's.
+    private List<AiCategorizationResult> categorize(RunClaim claim, List<Expense> window)
+            throws InterruptedException, ExecutionException {
+        List<Future<List<AiCategorizationResult>>> batches = new ArrayList<>();
+        try {
+            for (int from = 0; from < window.size(); from += batchSize) {
+                List<ExpenseRequest> batch = window.subList(from, Math.min(from + batchSize, window.size())).stream()
+                        .map(RecategorizationBackfill::toRequest)
+                        .toList();
+
+                if (!awaitCapacity(claim)) {
+                    return null;
+                }
+                if (circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+                    // The circuit only admits a few trial calls; send one batch at a time until it closes
+                    for (Future<List<AiCategorizationResult>> inFlight : batches) {
+                        inFlight.get();
+                    }
+                }
+                acquirePermits(batch.size());
+                batches.add(backfillExecutor.submit(() -> claudeAiService.recategorizeExpenses(batch)));
+            }
+
+            List<AiCategorizationResult> results = new ArrayList<>(window.size());
+            for (Future<List<AiCategorizationResult>> batch : batches) {
+                results.addAll(batch.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            // Shutting down: interrupt what is still out rather than wait for it
+            batches.forEach(future -> future.cancel(true));
+            throw e;
+        } finally {
+            awaitReturned(batches);
+        }
+    }
+
+    private static void awaitReturned(List<Future<List<AiCategorizationResult>>> batches) {
+        for (Future<List<AiCategorizationResult>> batch : batches) {
+            try {
+                batch.get();
+            } catch (ExecutionException | CancellationException e) {
+                // Returned one way or another, which is all that matters here; failures reach the caller via get
+            } catch (InterruptedException e) {
+                batches.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Live categorizations share the Claude bulkhead: send only while more than reserved-claude-calls of its slots
+    // are free, and not at all while the circuit is open, where every answer would be the fallback
+    private boolean awaitCapacity(RunClaim claim) throws InterruptedException {
+        long heartbeatIntervalNanos = TimeUnit.SECONDS.toNanos(staleAfterSeconds) / 4;
+        long lastHeartbeat = System.nanoTime();
+        while (isCircuitOpen() || bulkhead.getMetrics().getAvailableConcurrentCalls() <= reservedClaudeCalls) {
+            if (System.nanoTime() - lastHeartbeat > heartbeatIntervalNanos) {
+                Integer held = transactionTemplate.execute(status ->
+                        runRepository.heartbeat(claim.runId(), claim.claimToken(), LocalDateTime.now()));
+                if (held == 0) {
+                    return false;
+                }
+                lastHeartbeat = System.nanoTime();
+            }
+            Thread.sleep(CAPACITY_POLL_MS);
+        }
+        return true;
+    }
+
+    private boolean isCircuitOpen() {
+        CircuitBreaker.State state = circuitBreaker.getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    private void acquirePermits(int permits) throws InterruptedException {
+        // One permit per expense, taken at most a period's worth at a time so no single request can outwait
+        // the limiter's timeout
+        int perPeriod = rateLimiter.getRateLimiterConfig().getLimitForPeriod();
+        int remaining = permits;
+        while (remaining > 0) {
+            int chunk = Math.min(remaining, perPeriod);
+            if (rateLimiter.acquirePermission(chunk)) {
+                remaining -= chunk;
+            } else if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private static int firstFallback(List<AiCategorizationResult> results, int from) {
+        for (int i = from; i < results.size(); i++) {
+            if (results.get(i).isFallback()) {
+                return i;
+            }
+        }
+        return results.size();
+    }
+
+    // Results and the checkpoint commit together; false if the run is no longer ours, in which case nothing is
+    // applied and whoever holds the run next redoes this window
+    private boolean apply(RunClaim claim, List<Expense> window, List<AiCategorizationResult> results,
+                          long lastExpenseId, int fallbackRetries) {
+        Integer recategorized = transactionTemplate.execute(status -> {
+            Map<Long, Expense> current = expenseRepository.findAllById(window.stream().map(Expense::getId).toList())
+                    .stream()
+                    .collect(Collectors.toMap(Expense::getId, Function.identity()));
+
+            int changed = 0;
+            for (int i = 0; i < window.size(); i++) {
+                // Re-read inside the transaction: the user may have picked a category while Claude was busy
+                Expense expense = current.get(window.get(i).getId());
+                AiCategorizationResult result = results.get(i);
+                if (expense == null || expense.isManuallyUpdated() || !improves(result, expense)) {
+                    continue;
+                }
+
+                String previousCategory = expense.getCategory();
+                expense.setCategory(result.getCategory());
+                expense.setSubCategory(result.getSubCategory());
+                expense.setMerchantName(result.getMerchantName());
+                expense.setConfidenceScore(result.getConfidenceScore());
+                expense.setCategorizationStatus(CategorizationStatus.CATEGORIZED);
+                rollupService.recordCategoryChanged(expense, previousCategory);
+                responseCache.expenseUpdated(expense, previousCategory);
+                eventPublisher.expenseCategoryChanged(expense, previousCategory);
+                changed++;
+            }
+
+            if (runRepository.checkpoint(claim.runId(), claim.claimToken(), lastExpenseId, window.size(), changed,
+                    fallbackRetries, LocalDateTime.now()) == 0) {
+                status.setRollbackOnly();
+                return null;
+            }
+            return changed;
+        });
+
+        if (recategorized == null) {
+            return false;
+        }
+        meterRegistry.counter("categorization.backfill.expenses", "outcome", "recategorized").increment(recategorized);
+        meterRegistry.counter("categorization.backfill.expenses", "outcome", "unchanged")
+                .increment(window.size() - recategorized);
+        log.debug("Re-categorization run {} recategorized {} of {} expenses up to {}", claim.runId(), recategorized,
+                window.size(), lastExpenseId);
+        return true;
+    }
+
+    private static boolean improves(AiCategorizationResult result, Expense expense) {
+        // Another fallback is no news, and a less confident answer doesn't replace a real one
+        if (result.isFallback()) {
+            return false;
+        }
+        return expense.getCategorizationStatus() == CategorizationStatus.FAILED
+                || expense.getConfidenceScore() == null
+                || result.getConfidenceScore() >= expense.getConfidenceScore();
+    }
+
+    private void complete(RunClaim claim) {
+        Integer completed = transactionTemplate.execute(status ->
+                runRepository.complete(claim.runId(), claim.claimToken(), LocalDateTime.now()));
+        if (completed > 0) {
+            log.info("Re-categorization run {} completed", claim.runId());
+        }
+    }
+
+    private static ExpenseRequest toRequest(Expense expense) {
+        ExpenseRequest request = new ExpenseRequest();
+        request.setDescription(expense.getDescription());
+        request.setAmount(expense.getAmount());
+        return request;
+    }
+
+    private RecategorizationRunResponse toResponse(RecategorizationRun run) {
+        return new RecategorizationRunResponse(run.getId(), run.getStatus(), run.getConfidenceThreshold(),
+                run.getLastExpenseId(), run.getScanned(), run.getRecategorized(), run.getStartedAt(),
+                run.getUpdatedAt(), run.getFinishedAt());
+    }
+
+    private record RunClaim(Long runId, String claimToken, double threshold, long lastExpenseId,
+                            int fallbackRetries) {
+    }
+}
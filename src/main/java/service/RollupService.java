@@ -0,0 +1,244 @@
+package service;
+
+import dto.CategoryTotal;
+import dto.MonthlyCategoryTotal;
+import model.CategoryMonthlyRollup;
+import model.CategoryMonthlyRollupId;
+import model.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import repo.CategoryMonthlyRollupRepository;
+import repo.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class RollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupService.class);
+
+    private static final String INSERT_ROLLUP = "INSERT INTO category_monthly_rollups " +
+            "(year_month, category, total_amount, expense_count, updated_at) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    // SQLSTATE class 23; a duplicate key is 23505 on both H2 and PostgreSQL
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    // Update-or-insert rounds before giving up; each lost round means the row appeared and vanished in between
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
+    private final CategoryMonthlyRollupRepository rollupRepository;
+    private final ExpenseRepository expenseRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${rollup.enabled}")
+    private boolean enabled;
+
+    public RollupService(CategoryMonthlyRollupRepository rollupRepository, ExpenseRepository expenseRepository,
+                         JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.expenseRepository = expenseRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Transactional
+    public void recordAdded(Expense expense) {
+        if (enabled) {
+            applyDelta(yearMonthOf(expense), expense.getCategory(), expense.getAmount(), 1);
+        }
+    }
+
+    @Transactional
+    public void recordAdded(List<Expense> expenses) {
+        if (!enabled) {
+            return;
+        }
+
+        // One upsert per (month, category) instead of one per expense
+        Map<CategoryMonthlyRollupId, List<Expense>> grouped = expenses.stream()
+                .collect(Collectors.groupingBy(e -> new CategoryMonthlyRollupId(yearMonthOf(e), e.getCategory())));
+
+        grouped.forEach((id, group) -> applyDelta(
+                id.getYearMonth(),
+                id.getCategory(),
+                group.stream().map(Expense::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add),
+                group.size()
+        ));
+    }
+
+    @Transactional
+    public void recordRemoved(Expense expense) {
+        if (enabled) {
+            applyDelta(yearMonthOf(expense), expense.getCategory(), expense.getAmount().negate(), -1);
+        }
+    }
+
+    @Transactional
+    public void recordCategoryChanged(Expense expense, String previousCategory) {
+        if (!enabled || previousCategory.equals(expense.getCategory())) {
+            return;
+        }
+
+        String yearMonth = yearMonthOf(expense);
+        applyDelta(yearMonth, previousCategory, expense.getAmount().negate(), -1);
+        applyDelta(yearMonth, expense.getCategory(), expense.getAmount(), 1);
+    }
+
+    private void applyDelta(String yearMonth, String category, BigDecimal amount, long count) {
+        for (int attempt = 0; attempt < MAX_UPSERT_ATTEMPTS; attempt++) {
+            if (rollupRepository.applyDelta(yearMonth, category, amount, count) > 0) {
+                return;
+            }
+            // First write to this (month, category). A concurrent transaction may be creating the same row; if the
+            // insert loses that race, the row it collided with is now committed and the next round updates it.
+            // Unless a rebuild deleted it again in between, which sends the insert round once more.
+            if (insertRow(yearMonth, category, amount, count)) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Could not apply rollup delta for " + category + " in " + yearMonth);
+    }
+
+    // The insert runs under a savepoint, so a duplicate key undoes only the insert. It goes through plain JDBC on the
+    // transaction's connection because a failed Hibernate statement would mark the whole transaction rollback-only.
+    private boolean insertRow(String yearMonth, String category, BigDecimal amount, long count) {
+        Boolean inserted = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_ROLLUP)) {
+                insert.setString(1, yearMonth);
+                insert.setString(2, category);
+                insert.setBigDecimal(3, amount);
+                insert.setLong(4, count);
+                insert.executeUpdate();
+                connection.releaseSavepoint(savepoint);
+                return true;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)) {
+                    return false;
+                }
+                throw e;
+            }
+        });
+        return Boolean.TRUE.equals(inserted);
+    }
+
+    public List<CategoryTotal> getCategoryTotals() {
+        return rollupRepository.getCategorySummary();
+    }
+
+    public List<CategoryTotal> getCategoryTotals(YearMonth yearMonth) {
+        return rollupRepository.getCategorySummaryByYearMonth(yearMonth.toString());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        // Rollups may be stale if the feature was switched off while expenses changed
+        if (enabled) {
+            rebuildInTransaction();
+        }
+    }
+
+    @Scheduled(cron = "${rollup.rebuild.cron}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuildInTransaction();
+        }
+    }
+
+    // A call from within this class bypasses the proxy, and with it rebuild's @Transactional; the conditional
+    // repairs and the savepoint insert both need the transaction
+    private void rebuildInTransaction() {
+        transactionTemplate.executeWithoutResult(status -> rebuild());
+    }
+
+    // Writers are not blocked while this runs. The rollups are read before the expenses, so a write that commits
+    // between the two reads shows up as drift on a row it has already changed; every repair is conditional on the
+    // row still holding what was read, and leaves such a row to the next run instead of undoing the write's delta.
+    @Transactional
+    public int rebuild() {
+        log.info("Verifying category/month rollups against expenses");
+
+        Map<CategoryMonthlyRollupId, CategoryMonthlyRollup> actual = new HashMap<>();
+        rollupRepository.findAll().forEach(rollup -> actual.put(rollup.getId(), rollup));
+
+        Map<CategoryMonthlyRollupId, MonthlyCategoryTotal> expected = expenseRepository.getMonthlyCategorySummary()
+                .stream()
+                .collect(Collectors.toMap(
+                        total -> new CategoryMonthlyRollupId(
+                                YearMonth.of(total.getTransactionYear(), total.getTransactionMonth()).toString(),
+                                total.getCategory()),
+                        Function.identity()));
+
+        int repaired = 0;
+        int changed = 0;
+
+        for (Map.Entry<CategoryMonthlyRollupId, MonthlyCategoryTotal> entry : expected.entrySet()) {
+            CategoryMonthlyRollupId id = entry.getKey();
+            MonthlyCategoryTotal total = entry.getValue();
+            CategoryMonthlyRollup rollup = actual.remove(id);
+
+            if (rollup == null) {
+                // A duplicate key means a writer created the row since it was read, with its own delta
+                if (insertRow(id.getYearMonth(), id.getCategory(), total.getAmount(), total.getExpenseCount())) {
+                    repaired++;
+                } else {
+                    changed++;
+                }
+            } else if (rollup.getTotalAmount().compareTo(total.getAmount()) != 0
+                    || rollup.getExpenseCount() != total.getExpenseCount()) {
+                if (rollupRepository.repair(id.getYearMonth(), id.getCategory(), total.getAmount(),
+                        total.getExpenseCount(), rollup.getTotalAmount(), rollup.getExpenseCount()) > 0) {
+                    log.warn("Rollup drift for {}: stored {} / {}, actual {} / {}", id, rollup.getTotalAmount(),
+                            rollup.getExpenseCount(), total.getAmount(), total.getExpenseCount());
+                    repaired++;
+                } else {
+                    changed++;
+                }
+            }
+        }
+
+        // Whatever is left had no expenses behind it when they were read
+        for (CategoryMonthlyRollup stale : actual.values()) {
+            CategoryMonthlyRollupId id = stale.getId();
+            if (rollupRepository.deleteUnchanged(id.getYearMonth(), id.getCategory(),
+                    stale.getTotalAmount(), stale.getExpenseCount()) == 0) {
+                changed++;
+            } else if (stale.getExpenseCount() != 0 || stale.getTotalAmount().signum() != 0) {
+                repaired++;
+            }
+        }
+
+        log.info("Rollup verification finished, {} rows repaired, {} changed while verifying and left as they are",
+                repaired, changed);
+        return repaired;
+    }
+
+    private static String yearMonthOf(Expense expense) {
+        return YearMonth.from(expense.getTransactionDate()).toString();
+    }
+}
@@ -1,13 +1,52 @@
 package com.roushan.ai_expense_tracker_api;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application as the load-test harness runs it, with the loadtest profile and no stub Claude server
+ * listening, and checks that every operation the harness sends is answered with a 2xx.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
 class AiExpenseTrackerApplicationTests {
 
+	@Autowired
+	private TestRestTemplate restTemplate;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void loadTestOperationsAnswer2xx() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		// Claude is unreachable, so the expense is created with the fallback category
+		assertSuccessful(restTemplate.postForEntity("/api/expenses",
+				new HttpEntity<>("{\"description\":\"VENDOR QX PURCHASE\",\"amount\":12.50}", headers), String.class));
+
+		LocalDate today = LocalDate.now();
+		assertSuccessful(restTemplate.getForEntity("/api/expenses?limit=50", String.class));
+		assertSuccessful(restTemplate.getForEntity("/api/expenses/category/Other?limit=50", String.class));
+		assertSuccessful(restTemplate.getForEntity("/api/expenses/summary", String.class));
+		assertSuccessful(restTemplate.getForEntity("/api/expenses/summary/monthly?year=" + today.getYear()
+				+ "&month=" + today.getMonthValue(), String.class));
+	}
+
+	private static void assertSuccessful(ResponseEntity<String> response) {
+		assertThat(response.getStatusCode().is2xxSuccessful()).as(response.toString()).isTrue();
+	}
+
 }
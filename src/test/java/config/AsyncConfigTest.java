@@ -0,0 +1,84 @@
+package config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * The virtual-thread categorization executor turns submissions past its limit away at once, instead of parking
+ * the submitting request thread until a slot frees up. Runs on platform threads, since the build targets Java 17.
+ */
+class AsyncConfigTest {
+
+    private static final int LIMIT = 2;
+
+    private final AsyncConfig.RejectingAsyncTaskExecutor executor =
+            new AsyncConfig.RejectingAsyncTaskExecutor("test-", LIMIT);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void rejectsPastTheLimitWithoutWaiting() throws Exception {
+        CountDownLatch started = new CountDownLatch(LIMIT);
+        for (int i = 0; i < LIMIT; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                awaitRelease();
+            });
+        }
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            assertThatThrownBy(() -> executor.execute(() -> { })).isInstanceOf(TaskRejectedException.class);
+            assertThatThrownBy(() -> executor.submit(() -> "late")).isInstanceOf(TaskRejectedException.class);
+        });
+
+        // Finished tasks hand their slots back
+        release.countDown();
+        awaitAllSlotsFree();
+        Future<String> accepted = executor.submit(() -> "accepted");
+        assertThat(accepted.get(5, TimeUnit.SECONDS)).isEqualTo("accepted");
+    }
+
+    @Test
+    void failingTasksHandTheirSlotsBack() throws Exception {
+        for (int i = 0; i < LIMIT * 2; i++) {
+            Future<?> failed = executor.submit(() -> {
+                throw new IllegalStateException("boom");
+            });
+            assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            awaitAllSlotsFree();
+        }
+
+        assertThat(executor.submit(() -> "accepted").get(5, TimeUnit.SECONDS)).isEqualTo("accepted");
+    }
+
+    private void awaitAllSlotsFree() {
+        Semaphore permits = (Semaphore) ReflectionTestUtils.getField(executor, "permits");
+        await().atMost(Duration.ofSeconds(5)).until(() -> permits.availablePermits() == LIMIT);
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The Claude circuit breaker opens on upstream failures only: a full bulkhead is local saturation and a 4xx other
+ * than 429 is a bad request, and neither may send every categorization to the fallback while Claude is healthy.
+ */
+class ResilienceConfigTest {
+
+    private static final int MINIMUM_CALLS = 10;
+
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        ResilienceConfig config = new ResilienceConfig();
+        ReflectionTestUtils.setField(config, "failureRateThreshold", 50f);
+        ReflectionTestUtils.setField(config, "slowCallRateThreshold", 80f);
+        ReflectionTestUtils.setField(config, "slowCallDurationMs", 10_000L);
+        ReflectionTestUtils.setField(config, "slidingWindowSize", 20);
+        ReflectionTestUtils.setField(config, "minimumCalls", MINIMUM_CALLS);
+        ReflectionTestUtils.setField(config, "openDurationSeconds", 30L);
+        ReflectionTestUtils.setField(config, "halfOpenCalls", 3);
+        circuitBreaker = config.circuitBreakerRegistry(new SimpleMeterRegistry()).circuitBreaker("claude");
+    }
+
+    @Test
+    void fullBulkheadDoesNotOpenTheBreaker() {
+        BulkheadFullException full = BulkheadFullException.createBulkheadFullException(Bulkhead.ofDefaults("claude"));
+
+        failCalls(MINIMUM_CALLS * 2, full);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+    }
+
+    @Test
+    void clientErrorsDoNotOpenTheBreaker() {
+        failCalls(MINIMUM_CALLS * 2, HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request",
+                null, null, null));
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void rateLimitsAndServerErrorsOpenTheBreaker() {
+        failCalls(MINIMUM_CALLS / 2, HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS,
+                "Too Many Requests", null, null, null));
+        failCalls(MINIMUM_CALLS / 2, HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE,
+                "Service Unavailable", null, null, null));
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void failCalls(int count, RuntimeException failure) {
+        for (int i = 0; i < count; i++) {
+            assertThatThrownBy(() -> circuitBreaker.executeSupplier(() -> {
+                throw failure;
+            })).isSameAs(failure);
+        }
+    }
+}
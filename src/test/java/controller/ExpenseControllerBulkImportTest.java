@@ -0,0 +1,74 @@
+package controller;
+
+import model.Expense;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import repo.ExpenseRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A bulk body that turns malformed partway through keeps the items before the bad one and tells the client how far
+ * the import got, so it can resend only the rest.
+ */
+@SpringBootTest(properties = {
+        "categorization.async.enabled=false",
+        "categorization.outbox.enabled=false",
+        "expense.bulk.chunk-size=2",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+class ExpenseControllerBulkImportTest {
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @ComponentScan(basePackages = {"controller", "service", "config", "exception"},
+            excludeFilters = @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class))
+    @EntityScan(basePackageClasses = Expense.class)
+    @EnableJpaRepositories(basePackageClasses = ExpenseRepository.class)
+    static class TestConfig {
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Test
+    void malformedItemReportsWhatWasImported() throws Exception {
+        long before = expenseRepository.count();
+
+        mockMvc.perform(post("/api/expenses/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [
+                                  {"description": "STARBUCKS #1234", "amount": 5.75},
+                                  {"description": "SHELL OIL 57444", "amount": 41.20},
+                                  {"description": "STARBUCKS #98", "amount": 4.10},
+                                  {"description": "SHELL OIL 1, "amount": 30.00},
+                                  {"description": "STARBUCKS #77", "amount": 6.00}
+                                ]
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.imported.received").value(3))
+                .andExpect(jsonPath("$.imported.created").value(3))
+                .andExpect(jsonPath("$.imported.rejected").value(0));
+
+        assertThat(expenseRepository.count()).isEqualTo(before + 3);
+    }
+}
@@ -0,0 +1,113 @@
+package controller;
+
+import model.CategorizationStatus;
+import model.Expense;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import repo.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Polls of the summary and list endpoints revalidate with If-None-Match: unchanged data answers 304 with no body,
+ * and any committed write changes the ETag.
+ */
+@SpringBootTest(properties = {
+        "categorization.async.enabled=false",
+        "categorization.outbox.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+class ExpenseControllerConditionalGetTest {
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @ComponentScan(basePackages = {"controller", "service", "config", "exception"},
+            excludeFilters = @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class))
+    @EntityScan(basePackageClasses = Expense.class)
+    @EnableJpaRepositories(basePackageClasses = ExpenseRepository.class)
+    static class TestConfig {
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    private Long expenseId;
+
+    @BeforeEach
+    void setUp() {
+        Expense expense = new Expense();
+        expense.setDescription("CORNER SHOP");
+        expense.setAmount(new BigDecimal("12.00"));
+        expense.setCategory("Shopping");
+        expense.setSubCategory("General");
+        expense.setConfidenceScore(0.9);
+        expense.setTransactionDate(LocalDateTime.of(2024, 3, 5, 10, 0));
+        expense.setCategorizationStatus(CategorizationStatus.CATEGORIZED);
+        expenseId = expenseRepository.save(expense).getId();
+    }
+
+    @Test
+    void unchangedSummaryAnswersNotModified() throws Exception {
+        String eTag = eTagOf(mockMvc.perform(get("/api/expenses/summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn());
+
+        mockMvc.perform(get("/api/expenses/summary").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/expenses/summary/monthly?year=2024&month=3")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void writeChangesTheETag() throws Exception {
+        String before = eTagOf(mockMvc.perform(get("/api/expenses/category/Shopping"))
+                .andExpect(status().isOk())
+                .andReturn());
+
+        mockMvc.perform(put("/api/expenses/" + expenseId + "/category")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"category\":\"Travel\",\"subCategory\":\"Flights\"}"))
+                .andExpect(status().isOk());
+
+        String after = eTagOf(mockMvc.perform(get("/api/expenses/category/Shopping")
+                        .header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    private static String eTagOf(MvcResult result) {
+        assertThat(result.getResponse().getHeaders(HttpHeaders.ETAG)).hasSize(1);
+        return result.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
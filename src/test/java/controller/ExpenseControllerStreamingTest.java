@@ -0,0 +1,62 @@
+package controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.ExpenseResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * NDJSON listings reach the client in flushes of flush-rows rows while the cursor is still being read, and a
+ * flush-rows that can't work is refused at startup.
+ */
+class ExpenseControllerStreamingTest {
+
+    @Test
+    void flushesEveryFlushRowsRows() throws Exception {
+        ExpenseController controller = new ExpenseController(null, new ObjectMapper(), 3);
+
+        Consumer<Consumer<ExpenseResponse>> producer = sink -> {
+            for (long id = 1; id <= 7; id++) {
+                ExpenseResponse expense = new ExpenseResponse();
+                expense.setId(id);
+                sink.accept(expense);
+            }
+        };
+        ResponseEntity<StreamingResponseBody> response = ReflectionTestUtils.invokeMethod(controller, "ndjson", producer);
+
+        FlushRecordingStream out = new FlushRecordingStream();
+        response.getBody().writeTo(out);
+
+        // Lines written by the time of each flush
+        assertThat(out.linesAtFlush).containsExactly(3L, 6L);
+        assertThat(out.toString(StandardCharsets.UTF_8).lines()).hasSize(7);
+    }
+
+    @Test
+    void rejectsFlushRowsBelowOne() {
+        assertThatThrownBy(() -> new ExpenseController(null, new ObjectMapper(), 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("expense.stream.flush-rows");
+    }
+
+    private static final class FlushRecordingStream extends ByteArrayOutputStream {
+
+        private final List<Long> linesAtFlush = new ArrayList<>();
+
+        @Override
+        public void flush() {
+            linesAtFlush.add(toString(StandardCharsets.UTF_8).lines().count());
+        }
+    }
+}
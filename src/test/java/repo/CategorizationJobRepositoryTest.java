@@ -0,0 +1,132 @@
+package repo;
+
+import model.CategorizationJob;
+import model.CategorizationJobStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Claims on the categorization outbox must not overlap: rows locked by one worker's open claim
+ * transaction are skipped, not returned, by every other worker.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CategorizationJobRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 2, 1, 12, 0);
+
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = CategorizationJob.class)
+    @EnableJpaRepositories(basePackageClasses = CategorizationJobRepository.class)
+    static class TestConfig {
+    }
+
+    @Autowired
+    private CategorizationJobRepository jobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        jobRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentClaimsSkipLockedJobs() throws Exception {
+        jobRepository.saveAll(List.of(job(1L, NOW.minusMinutes(3)), job(2L, NOW.minusMinutes(2)),
+                job(3L, NOW.minusMinutes(1))));
+
+        CountDownLatch firstClaimHeld = new CountDownLatch(1);
+        CountDownLatch secondClaimDone = new CountDownLatch(1);
+        ExecutorService firstWorker = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Long>> first = firstWorker.submit(() -> transactionTemplate.execute(status -> {
+                List<Long> claimed = expenseIds(jobRepository.lockDueJobs(NOW, 2));
+                firstClaimHeld.countDown();
+                await(secondClaimDone);
+                return claimed;
+            }));
+
+            assertThat(firstClaimHeld.await(10, TimeUnit.SECONDS)).isTrue();
+            List<Long> second = transactionTemplate.execute(status -> expenseIds(jobRepository.lockDueJobs(NOW, 10)));
+            secondClaimDone.countDown();
+
+            assertThat(first.get(10, TimeUnit.SECONDS)).containsExactly(1L, 2L);
+            assertThat(second).containsExactly(3L);
+        } finally {
+            secondClaimDone.countDown();
+            firstWorker.shutdownNow();
+        }
+    }
+
+    @Test
+    void lockDueJobsIgnoresFutureAndFailedJobs() {
+        CategorizationJob failed = job(3L, NOW.minusMinutes(1));
+        failed.setStatus(CategorizationJobStatus.FAILED);
+        jobRepository.saveAll(List.of(job(1L, NOW.minusMinutes(1)), job(2L, NOW.plusMinutes(1)), failed));
+
+        List<Long> claimed = transactionTemplate.execute(status -> expenseIds(jobRepository.lockDueJobs(NOW, 10)));
+
+        assertThat(claimed).containsExactly(1L);
+    }
+
+    @Test
+    void staleClaimTokenCannotCompleteOrReleaseJob() {
+        CategorizationJob job = job(1L, NOW);
+        job.setClaimToken("current");
+        Long id = jobRepository.save(job).getId();
+
+        Integer staleDeleted = transactionTemplate.execute(status -> jobRepository.deleteClaimed(id, "stale"));
+        Integer staleReleased = transactionTemplate.execute(status -> jobRepository.releaseClaimed(id, "stale", NOW));
+        Integer deleted = transactionTemplate.execute(status -> jobRepository.deleteClaimed(id, "current"));
+
+        assertThat(staleDeleted).isZero();
+        assertThat(staleReleased).isZero();
+        assertThat(deleted).isEqualTo(1);
+        assertThat(jobRepository.findById(id)).isEmpty();
+    }
+
+    private static CategorizationJob job(Long expenseId, LocalDateTime availableAt) {
+        CategorizationJob job = new CategorizationJob();
+        job.setExpenseId(expenseId);
+        job.setStatus(CategorizationJobStatus.QUEUED);
+        job.setAvailableAt(availableAt);
+        job.setCreatedAt(NOW);
+        return job;
+    }
+
+    private static List<Long> expenseIds(List<CategorizationJob> jobs) {
+        return jobs.stream().map(CategorizationJob::getExpenseId).toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
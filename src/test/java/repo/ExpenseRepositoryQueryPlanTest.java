@@ -0,0 +1,220 @@
+package repo;
+
+import model.Expense;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs every ExpenseRepository query, captures the SQL Hibernate actually sent together with its
+ * bound parameters, and asserts that H2's EXPLAIN plan for it uses one of the expenses indexes.
+ */
+@DataJpaTest
+class ExpenseRepositoryQueryPlanTest {
+
+    private static final String CATEGORY_INDEX = "IDX_EXPENSES_CATEGORY_TXN_DATE";
+    private static final String DATE_INDEX = "IDX_EXPENSES_TXN_DATE";
+    private static final String PRIMARY_KEY = "PRIMARY_KEY";
+
+    private static final List<RecordedStatement> recorded = new CopyOnWriteArrayList<>();
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 2, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 2, 29, 23, 59, 59);
+
+    @SpringBootConfiguration
+    @EntityScan(basePackageClasses = Expense.class)
+    @EnableJpaRepositories(basePackageClasses = ExpenseRepository.class)
+    static class TestConfig {
+
+        @Bean
+        static BeanPostProcessor recordingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? recording(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void clearRecordedStatements() {
+        recorded.clear();
+    }
+
+    @Test
+    void findByCategoryUsesCategoryIndex() throws SQLException {
+        expenseRepository.findByCategory("Travel");
+        assertPlanUses(CATEGORY_INDEX);
+    }
+
+    @Test
+    void findByTransactionDateBetweenUsesDateIndex() throws SQLException {
+        expenseRepository.findByTransactionDateBetween(START, END);
+        assertPlanUses(DATE_INDEX);
+    }
+
+    @Test
+    void findExpensesByDateRangeUsesDateIndex() throws SQLException {
+        expenseRepository.findExpensesByDateRange(START, END);
+        assertPlanUses(DATE_INDEX);
+    }
+
+    @Test
+    void getCategorySummaryReadsCategoryIndexInOrder() throws SQLException {
+        expenseRepository.getCategorySummary();
+        assertPlanUses(CATEGORY_INDEX);
+    }
+
+    @Test
+    void getCategorySummaryByDateRangeUsesDateIndex() throws SQLException {
+        expenseRepository.getCategorySummaryByDateRange(START, END);
+        assertPlanUses(DATE_INDEX);
+    }
+
+    @Test
+    void findPageAfterUsesDateIndex() throws SQLException {
+        expenseRepository.findPageAfter(END, 100L, Limit.of(50));
+        assertPlanUses(DATE_INDEX);
+    }
+
+    @Test
+    void findPageByCategoryAfterUsesCategoryIndex() throws SQLException {
+        expenseRepository.findPageByCategoryAfter("Travel", END, 100L, Limit.of(50));
+        assertPlanUses(CATEGORY_INDEX);
+    }
+
+    @Test
+    void findPageByDateRangeAfterUsesDateIndex() throws SQLException {
+        expenseRepository.findPageByDateRangeAfter(START, END, END, 100L, Limit.of(50));
+        assertPlanUses(DATE_INDEX);
+    }
+
+    @Test
+    void findRecategorizationCandidatesScansPrimaryKeyFromCheckpoint() throws SQLException {
+        expenseRepository.findRecategorizationCandidates(100L, 0.6, Limit.of(40));
+        assertPlanUses(PRIMARY_KEY);
+    }
+
+    @Test
+    void streamByCategoryUsesCategoryIndex() throws SQLException {
+        try (Stream<Expense> expenses = expenseRepository.streamByCategory("Travel")) {
+            expenses.count();
+        }
+        assertPlanUses(CATEGORY_INDEX);
+    }
+
+    @Test
+    void streamByDateRangeUsesDateIndex() throws SQLException {
+        try (Stream<Expense> expenses = expenseRepository.streamByDateRange(START, END)) {
+            expenses.count();
+        }
+        assertPlanUses(DATE_INDEX);
+    }
+
+    private void assertPlanUses(String indexName) throws SQLException {
+        RecordedStatement statement = recorded.stream()
+                .filter(s -> s.sql().toLowerCase().startsWith("select"))
+                .reduce((first, second) -> second)
+                .orElseThrow(() -> new AssertionError("No SELECT was executed"));
+
+        String plan = explain(statement);
+
+        assertThat(plan)
+                .as("EXPLAIN plan for: %s", statement.sql())
+                .containsIgnoringCase(indexName)
+                .doesNotContainIgnoringCase("tableScan");
+    }
+
+    private String explain(RecordedStatement statement) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+            for (Map.Entry<Integer, Object> parameter : statement.parameters().entrySet()) {
+                explain.setObject(parameter.getKey(), parameter.getValue());
+            }
+            try (ResultSet resultSet = explain.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        }
+    }
+
+    private record RecordedStatement(String sql, Map<Integer, Object> parameters) {
+    }
+
+    // Wraps the DataSource so every PreparedStatement records its SQL and bound parameters on execution
+    private static DataSource recording(DataSource target) {
+        return proxy(DataSource.class, target, (method, args, result) ->
+                result instanceof Connection connection ? recording(connection) : result);
+    }
+
+    private static Connection recording(Connection target) {
+        return proxy(Connection.class, target, (method, args, result) ->
+                method.equals("prepareStatement") && result instanceof PreparedStatement statement
+                        ? recording(statement, (String) args[0])
+                        : result);
+    }
+
+    private static PreparedStatement recording(PreparedStatement target, String sql) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                        parameters.put(index, args[1]);
+                    } else if (name.startsWith("execute")) {
+                        recorded.add(new RecordedStatement(sql, new TreeMap<>(parameters)));
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private interface ResultWrapper {
+        Object wrap(String method, Object[] args, Object result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, ResultWrapper wrapper) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> wrapper.wrap(method.getName(), args, invoke(target, method, args)));
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package service;
+
+import com.jayway.jsonpath.JsonPath;
+import model.CategorizationStatus;
+import model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import repo.ExpenseRepository;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * An expense the full categorization queue turns away is marked FAILED with the fallback category, and that write
+ * reaches the database even though it is made while the inserting transaction completes.
+ */
+@SpringBootTest(properties = {
+        "categorization.async.enabled=true",
+        "categorization.async.core-pool-size=1",
+        "categorization.async.max-pool-size=1",
+        "categorization.async.queue-capacity=0",
+        "categorization.outbox.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+class AsyncCategorizationRejectionTest {
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @ComponentScan(basePackages = {"controller", "service", "config", "exception"},
+            excludeFilters = @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class))
+    @EntityScan(basePackageClasses = Expense.class)
+    @EnableJpaRepositories(basePackageClasses = ExpenseRepository.class)
+    static class TestConfig {
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    @Qualifier("categorizationExecutor")
+    private AsyncTaskExecutor categorizationExecutor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void rejectedExpenseIsMarkedFailed() throws Exception {
+        // Occupy the only worker; with no queue, the next submission is rejected
+        CountDownLatch started = new CountDownLatch(1);
+        categorizationExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        String body = mockMvc.perform(post("/api/expenses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"QZX TRADING 4471\",\"amount\":42.50}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.categorizationStatus").value("PENDING"))
+                .andReturn().getResponse().getContentAsString();
+        Long id = ((Number) JsonPath.read(body, "$.id")).longValue();
+
+        Expense expense = expenseRepository.findById(id).orElseThrow();
+        assertThat(expense.getCategorizationStatus()).isEqualTo(CategorizationStatus.FAILED);
+        assertThat(expense.getCategory()).isNotEqualTo(AsyncCategorizationService.PENDING_CATEGORY);
+    }
+}
@@ -0,0 +1,64 @@
+package service;
+
+import dto.AiCategorizationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Descriptions that differ only in store numbers and punctuation share an entry, and the cache's hits, misses,
+ * evictions and size reach the meter registry.
+ */
+class CategorizationCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CategorizationCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new CategorizationCache(null, meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 2);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(cache, "persistence", "memory");
+    }
+
+    @Test
+    void normalizedDescriptionsShareAnEntry() {
+        cache.put("STARBUCKS #1234", result("Food & Dining"));
+
+        assertThat(cache.get("Starbucks  #98")).get().extracting(AiCategorizationResult::getCategory)
+                .isEqualTo("Food & Dining");
+        assertThat(cache.get("STARBUCKS RESERVE")).isEmpty();
+    }
+
+    @Test
+    void publishesHitsMissesEvictionsAndSize() {
+        cache.put("UBER *TRIP 8812", result("Transportation"));
+        cache.get("UBER TRIP");
+        cache.get("UBER TRIP 1234");
+        cache.get("LYFT RIDE");
+        cache.put("LYFT RIDE", result("Transportation"));
+        cache.put("DELTA AIR", result("Travel"));
+
+        assertThat(gets("hit")).isEqualTo(2);
+        assertThat(gets("miss")).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.evictions").tag("cache", "categorization").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("cache.size").tag("cache", "categorization").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("categorization.cache.hit.ratio").gauge().value()).isEqualTo(2.0 / 3);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "categorization").tag("result", result)
+                .functionCounter().count();
+    }
+
+    private static AiCategorizationResult result(String category) {
+        return new AiCategorizationResult(category, null, null, 0.9, "", false);
+    }
+}
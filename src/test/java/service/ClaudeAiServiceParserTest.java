@@ -0,0 +1,132 @@
+package service;
+
+import dto.AiCategorizationResult;
+import dto.claude.ClaudeResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Claude's answer is found in whatever text surrounds it: the first object with a category for a single expense,
+ * the first array with a usable item for a batch. Compact and verbose keys both parse.
+ */
+class ClaudeAiServiceParserTest {
+
+    private ClaudeAiService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ClaudeAiService(null, null, null, null, null, null, null, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void singleReadsVerboseAndCompactKeys() {
+        AiCategorizationResult verbose = parse("""
+                {"category":"Travel","subCategory":"Flights","merchantName":"Delta","confidenceScore":0.92,
+                 "reasoning":"Airline"}""");
+        AiCategorizationResult compact = parse("""
+                {"c":"TV","s":"Flights","m":"Delta","p":0.92}""");
+
+        for (AiCategorizationResult result : List.of(verbose, compact)) {
+            assertThat(result.getCategory()).isEqualTo("Travel");
+            assertThat(result.getSubCategory()).isEqualTo("Flights");
+            assertThat(result.getMerchantName()).isEqualTo("Delta");
+            assertThat(result.getConfidenceScore()).isEqualTo(0.92);
+            assertThat(result.isFallback()).isFalse();
+        }
+        // The model sometimes answers the code field with the full name
+        assertThat(parse("{\"c\":\"Shopping\"}").getCategory()).isEqualTo("Shopping");
+    }
+
+    @Test
+    void singleSkipsPreambleAndTrailingText() {
+        AiCategorizationResult result = parse("""
+                Sure {not json}. Here it is: {"c":"FD","p":0.8} Let me know {if} that helps.""");
+
+        assertThat(result.getCategory()).isEqualTo("Food & Dining");
+        assertThat(result.getConfidenceScore()).isEqualTo(0.8);
+    }
+
+    @Test
+    void singleIgnoresCategoriesOfNestedObjects() {
+        assertThat(parse("""
+                {"alternatives":{"category":"Travel"},"note":"unsure"} {"category":"Shopping"}""").getCategory())
+                .isEqualTo("Shopping");
+
+        assertThatThrownBy(() -> parse("""
+                {"alternatives":{"category":"Travel"},"note":"unsure"}"""))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to parse AI response");
+    }
+
+    @Test
+    void batchSkipsArraysWithoutUsableItems() {
+        List<AiCategorizationResult> results = parseBatch("""
+                Sure [1] here: [{"index":0,"category":"Travel"}]""", 1);
+
+        assertThat(results).extracting(AiCategorizationResult::getCategory).containsExactly("Travel");
+    }
+
+    @Test
+    void batchIgnoresArraysNestedInAnUnusableOne() {
+        assertThatThrownBy(() -> parseBatch("""
+                [1, [{"i":0,"c":"TV"}], "x"]""", 1))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to parse AI batch response");
+    }
+
+    @Test
+    void batchSkipsScalarsAndPlacesItemsByIndex() {
+        List<AiCategorizationResult> results = parseBatch("""
+                Results: [2, "noise", {"i":2,"c":"EN","p":0.7}, {"index":0,"category":"Healthcare"}, {"i":9,"c":"SH"}]
+                Anything else [?]""", 3);
+
+        assertThat(results).extracting(result -> result == null ? null : result.getCategory())
+                .containsExactly("Healthcare", null, "Entertainment");
+    }
+
+    @Test
+    void batchWithoutIndexesIsPositional() {
+        List<AiCategorizationResult> results = parseBatch("""
+                [{"c":"FD"},{"category":"Transportation"}]""", 2);
+
+        assertThat(results).extracting(AiCategorizationResult::getCategory)
+                .containsExactly("Food & Dining", "Transportation");
+    }
+
+    @Test
+    void truncatedBatchKeepsItsLeadingItems() {
+        List<AiCategorizationResult> results = parseBatch("""
+                [{"i":0,"c":"FD","p":0.9},{"i":1,"c":"T""", 2);
+
+        assertThat(results.get(0).getCategory()).isEqualTo("Food & Dining");
+        assertThat(results.get(1)).isNull();
+    }
+
+    @Test
+    void truncatedBatchWithoutAnyItemFails() {
+        assertThatThrownBy(() -> parseBatch("""
+                [{"i":0,"c":""", 2))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to parse AI batch response");
+    }
+
+    private AiCategorizationResult parse(String text) {
+        return service.parseCategorizationResponse(response(text));
+    }
+
+    private List<AiCategorizationResult> parseBatch(String text, int expectedCount) {
+        return service.parseCategorizationResponse(response(text), expectedCount);
+    }
+
+    private static ClaudeResponse response(String text) {
+        ClaudeResponse response = new ClaudeResponse();
+        response.setContent(List.of(new ClaudeResponse.Content("text", text)));
+        return response;
+    }
+}
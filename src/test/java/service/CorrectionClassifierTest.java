@@ -0,0 +1,120 @@
+package service;
+
+import dto.AiCategorizationResult;
+import model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exact description matches are answered from the newest correction of that description; anything else needs enough
+ * corrections and a confident enough prediction. Only committed corrections teach the classifier.
+ */
+class CorrectionClassifierTest {
+
+    private static final int MIN_EXAMPLES = 6;
+
+    private CorrectionClassifier classifier;
+
+    @BeforeEach
+    void setUp() {
+        classifier = new CorrectionClassifier(null);
+        ReflectionTestUtils.setField(classifier, "enabled", true);
+        ReflectionTestUtils.setField(classifier, "minConfidence", 0.9);
+        ReflectionTestUtils.setField(classifier, "minExamples", MIN_EXAMPLES);
+        ReflectionTestUtils.setField(classifier, "minKnownWordRatio", 0.5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void exactMatchAppliesFromTheFirstCorrection() {
+        classifier.learn(expense(1L, "Uber Trip", "Transportation"));
+
+        Optional<AiCategorizationResult> result = classifier.classify("UBER   TRIP");
+
+        assertThat(result).get().extracting(AiCategorizationResult::getCategory).isEqualTo("Transportation");
+        assertThat(result.get().getConfidenceScore()).isEqualTo(0.99);
+    }
+
+    @Test
+    void predictionWaitsForEnoughExamplesAndConfidence() {
+        classifier.learn(expense(1L, "BLUE BOTTLE COFFEE", "Food & Dining"));
+        classifier.learn(expense(2L, "PEETS COFFEE", "Food & Dining"));
+        classifier.learn(expense(3L, "LOCAL COFFEE ROASTERS", "Food & Dining"));
+        classifier.learn(expense(4L, "DELTA AIRLINES", "Travel"));
+        classifier.learn(expense(5L, "UNITED AIRLINES", "Travel"));
+        assertThat(classifier.classify("PEETS COFFEE ROASTERS")).isEmpty();
+
+        classifier.learn(expense(6L, "ALASKA AIRLINES", "Travel"));
+
+        Optional<AiCategorizationResult> confident = classifier.classify("PEETS COFFEE ROASTERS");
+        assertThat(confident).get().extracting(AiCategorizationResult::getCategory).isEqualTo("Food & Dining");
+        assertThat(confident.get().getConfidenceScore()).isBetween(0.9, 0.99);
+        // One known word out of two leans the right way, but not past min-confidence
+        assertThat(classifier.classify("CORNER COFFEE")).isEmpty();
+        // Mostly unknown words are left to Claude
+        assertThat(classifier.classify("QZX TRADING COFFEE")).isEmpty();
+    }
+
+    @Test
+    void forgettingOneCorrectionKeepsOthersOfTheSameDescription() {
+        classifier.learn(expense(1L, "GREEN GROCER", "Groceries"));
+        classifier.learn(expense(2L, "GREEN GROCER", "Food & Dining"));
+        assertThat(categoryOf("GREEN GROCER")).isEqualTo("Food & Dining");
+
+        classifier.forget(2L);
+        assertThat(categoryOf("GREEN GROCER")).isEqualTo("Groceries");
+        assertThat(classifier.size()).isEqualTo(1);
+
+        classifier.forget(1L);
+        assertThat(classifier.classify("GREEN GROCER")).isEmpty();
+        assertThat(classifier.size()).isZero();
+
+        // Relearning counts the expense once, however often it is corrected
+        classifier.learn(expense(1L, "GREEN GROCER", "Shopping"));
+        classifier.learn(expense(1L, "GREEN GROCER", "Groceries"));
+        assertThat(categoryOf("GREEN GROCER")).isEqualTo("Groceries");
+        assertThat(classifier.size()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyCommittedCorrectionsAreLearned() {
+        TransactionSynchronizationManager.initSynchronization();
+        classifier.learn(expense(1L, "GREEN GROCER", "Groceries"));
+        // Rolled back: the synchronizations are dropped without afterCommit
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(classifier.classify("GREEN GROCER")).isEmpty();
+
+        TransactionSynchronizationManager.initSynchronization();
+        classifier.learn(expense(1L, "GREEN GROCER", "Groceries"));
+        assertThat(classifier.classify("GREEN GROCER")).isEmpty();
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        assertThat(categoryOf("GREEN GROCER")).isEqualTo("Groceries");
+    }
+
+    private String categoryOf(String description) {
+        return classifier.classify(description).orElseThrow().getCategory();
+    }
+
+    private static Expense expense(Long id, String description, String category) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setDescription(description);
+        expense.setCategory(category);
+        expense.setManuallyUpdated(true);
+        return expense;
+    }
+}
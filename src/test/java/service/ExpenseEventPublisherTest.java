@@ -0,0 +1,215 @@
+package service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import dto.ExpenseEvent;
+import dto.MonthlyCategoryDelta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Publishing must never wait on subscribers: a subscriber whose buffer is full is dropped, not waited for, and a
+ * client whose socket stops draining must not hold up delivery to everyone else. Each event carries the summary
+ * change it implies.
+ */
+class ExpenseEventPublisherTest {
+
+    private static final int BUFFER_SIZE = 3;
+    private static final int SENDER_THREADS = 2;
+    private static final Duration WRITE_TIMEOUT = Duration.ofMillis(100);
+
+    private final List<ExpenseEvent> published = new CopyOnWriteArrayList<>();
+    private final Deque<SseEmitter> nextEmitters = new ArrayDeque<>();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private final AtomicInteger blockedSends = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private ThreadPoolTaskExecutor senders;
+    private ExpenseEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper() {
+            @Override
+            public String writeValueAsString(Object value) throws JsonProcessingException {
+                published.add((ExpenseEvent) value);
+                return super.writeValueAsString(value);
+            }
+        };
+        objectMapper.registerModule(new JavaTimeModule());
+
+        senders = new ThreadPoolTaskExecutor();
+        senders.setCorePoolSize(SENDER_THREADS);
+        senders.setMaxPoolSize(SENDER_THREADS);
+        senders.setQueueCapacity(10);
+        senders.initialize();
+
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = new ExpenseEventPublisher(true, 10, BUFFER_SIZE, 30, WRITE_TIMEOUT.toMillis(), objectMapper,
+                senders, meterRegistry) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                SseEmitter next = nextEmitters.poll();
+                return next != null ? next : new RecordingEmitter();
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        senders.shutdown();
+    }
+
+    @Test
+    void slowSubscriberIsDroppedInsteadOfBlockingWriters() {
+        subscribeBlocked(SENDER_THREADS);
+
+        // Each sender is stuck writing the connect heartbeat, so every event stays in the buffers
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            publisher.expenseAdded(expense(i, "Shopping"));
+        }
+        assertThat(publisher.getSubscriberCount()).isEqualTo(SENDER_THREADS);
+
+        publisher.expenseAdded(expense(99, "Shopping"));
+
+        assertThat(publisher.getSubscriberCount()).isZero();
+        assertThat(dropped("buffer-full")).isEqualTo(SENDER_THREADS);
+    }
+
+    @Test
+    void stalledSocketsDoNotStarveOtherSubscribers() throws InterruptedException {
+        // As many stalled clients as there are sender threads, then healthy ones queued behind them
+        subscribeBlocked(SENDER_THREADS);
+        List<RecordingEmitter> healthy = List.of(new RecordingEmitter(), new RecordingEmitter(),
+                new RecordingEmitter());
+        nextEmitters.addAll(healthy);
+        healthy.forEach(emitter -> publisher.subscribe());
+
+        Thread.sleep(WRITE_TIMEOUT.multipliedBy(2).toMillis());
+        publisher.dropStalledSubscribers();
+
+        assertThat(publisher.getSubscriberCount()).isEqualTo(healthy.size());
+        assertThat(senders.getCorePoolSize()).isEqualTo(SENDER_THREADS * 2);
+
+        // Several buffers' worth, each delivered before the next is published
+        for (int i = 1; i <= BUFFER_SIZE * 3; i++) {
+            publisher.expenseAdded(expense(i, "Shopping"));
+            int expected = i;
+            await().atMost(Duration.ofSeconds(5))
+                    .until(() -> healthy.stream().allMatch(emitter -> emitter.events.get() == expected));
+        }
+
+        assertThat(publisher.getSubscriberCount()).isEqualTo(healthy.size());
+        assertThat(dropped("write-timeout")).isEqualTo(SENDER_THREADS);
+        assertThat(dropped("buffer-full")).isZero();
+
+        // The borrowed threads are given back once the stuck writes return
+        unblock.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> senders.getCorePoolSize() == SENDER_THREADS);
+    }
+
+    @Test
+    void categoryChangeMovesAmountBetweenCategories() {
+        publisher.subscribe();
+
+        publisher.expenseCategoryChanged(expense(1, "Travel"), "Shopping");
+
+        assertThat(published).hasSize(1);
+        ExpenseEvent event = published.get(0);
+        assertThat(event.getType()).isEqualTo(ExpenseEventPublisher.CATEGORY_UPDATED);
+        assertThat(event.getExpense().getCategory()).isEqualTo("Travel");
+        assertThat(event.getSummaryDelta()).containsExactly(
+                new MonthlyCategoryDelta("2024-03", "Shopping", new BigDecimal("-12.50"), -1),
+                new MonthlyCategoryDelta("2024-03", "Travel", new BigDecimal("12.50"), 1));
+    }
+
+    @Test
+    void importPublishesOneEventWithCombinedDeltas() {
+        publisher.subscribe();
+
+        publisher.expensesAdded(List.of(expense(1, "Shopping"), expense(2, "Shopping"), expense(3, "Travel")));
+
+        assertThat(published).hasSize(1);
+        assertThat(published.get(0).getSummaryDelta()).containsExactly(
+                new MonthlyCategoryDelta("2024-03", "Shopping", new BigDecimal("25.00"), 2),
+                new MonthlyCategoryDelta("2024-03", "Travel", new BigDecimal("12.50"), 1));
+    }
+
+    @Test
+    void nothingIsPublishedWithoutSubscribers() {
+        publisher.expenseAdded(expense(1, "Shopping"));
+
+        assertThat(published).isEmpty();
+        assertThat(senders.getThreadPoolExecutor().getTaskCount()).isZero();
+    }
+
+    private void subscribeBlocked(int count) {
+        for (int i = 0; i < count; i++) {
+            nextEmitters.add(new BlockingEmitter());
+            publisher.subscribe();
+        }
+        await().atMost(Duration.ofSeconds(5)).until(() -> blockedSends.get() == count);
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.counter("expense.events.subscribers.dropped", "reason", reason).count();
+    }
+
+    private static Expense expense(long id, String category) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setDescription("CORNER SHOP");
+        expense.setAmount(new BigDecimal("12.50"));
+        expense.setCategory(category);
+        expense.setTransactionDate(LocalDateTime.of(2024, 3, 5, 10, 0));
+        return expense;
+    }
+
+    // Counts the events written to it, leaving out heartbeats
+    private static class RecordingEmitter extends SseEmitter {
+
+        final AtomicInteger events = new AtomicInteger();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (builder.build().stream().anyMatch(part -> part.getData().toString().contains("event:"))) {
+                events.incrementAndGet();
+            }
+        }
+    }
+
+    // A client that stopped reading: the first write never returns until the test ends
+    private class BlockingEmitter extends SseEmitter {
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            blockedSends.incrementAndGet();
+            try {
+                unblock.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package service;
+
+import dto.ExpenseResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import model.Expense;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Writes must invalidate precisely: the written expense and its old and new categories, and nothing else. A
+ * category list loaded before a write must not be served after it.
+ */
+class ExpenseResponseCacheTest {
+
+    private ExpenseResponseCache cache;
+    private SimpleMeterRegistry meterRegistry;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ExpenseResponseCache(true, 100, 1000, 300,
+                new StaticListableBeanFactory().getBeanProvider(ExpenseResponseStore.class), meterRegistry);
+    }
+
+    @Test
+    void servesRepeatedReadsFromCache() {
+        cache.getExpense(1L, () -> load(1L, "Shopping"));
+        ExpenseResponse second = cache.getExpense(1L, () -> load(1L, "Shopping"));
+
+        assertThat(second.getCategory()).isEqualTo("Shopping");
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("expense.cache.hit.ratio").tag("cache", "expenses.by-id").gauge().value())
+                .isEqualTo(0.5);
+    }
+
+    @Test
+    void updateEvictsExpenseAndBothCategoryLists() {
+        cache.getExpense(1L, () -> load(1L, "Shopping"));
+        cache.getExpense(2L, () -> load(2L, "Shopping"));
+        cache.getCategoryList("Shopping", () -> List.of(load(1L, "Shopping")));
+        cache.getCategoryList("Travel", List::of);
+        cache.getCategoryList("Healthcare", List::of);
+        loads.set(0);
+
+        cache.expenseUpdated(expense(1L, "Travel"), "Shopping");
+
+        cache.getExpense(1L, () -> load(1L, "Travel"));
+        cache.getExpense(2L, () -> load(2L, "Shopping"));
+        cache.getCategoryList("Shopping", () -> List.of(load(2L, "Shopping")));
+        cache.getCategoryList("Travel", () -> List.of(load(1L, "Travel")));
+        cache.getCategoryList("Healthcare", () -> List.of(load(3L, "Healthcare")));
+
+        // Expense 1 and the two lists it moved between; expense 2 and Healthcare stay cached
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    void listLoadedBeforeWriteIsNotServedAfterIt() {
+        List<ExpenseResponse> stale = cache.getCategoryList("Shopping", () -> {
+            // The write commits while this load is still reading
+            cache.expenseAdded(expense(5L, "Shopping"));
+            return List.of();
+        });
+
+        List<ExpenseResponse> fresh = cache.getCategoryList("Shopping", () -> List.of(load(5L, "Shopping")));
+
+        assertThat(stale).isEmpty();
+        assertThat(fresh).extracting(ExpenseResponse::getId).containsExactly(5L);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        assertThatThrownBy(() -> cache.getExpense(9L, () -> {
+            throw new RuntimeException("Expense not found with ID: 9");
+        })).hasMessageContaining("not found");
+
+        assertThat(cache.getExpense(9L, () -> load(9L, "Other")).getId()).isEqualTo(9L);
+    }
+
+    @Test
+    void zeroTtlTurnsTimeBasedExpiryOff() {
+        ExpenseResponseCache noExpiry = new ExpenseResponseCache(true, 100, 1000, 0,
+                new StaticListableBeanFactory().getBeanProvider(ExpenseResponseStore.class), meterRegistry);
+
+        noExpiry.getCategoryList("Shopping", () -> List.of(load(1L, "Shopping")));
+        noExpiry.getCategoryList("Shopping", () -> List.of(load(1L, "Shopping")));
+        String tag = noExpiry.dataVersionTag();
+
+        assertThat(loads).hasValue(1);
+        assertThat(noExpiry.dataVersionTag()).isEqualTo(tag);
+    }
+
+    @Test
+    void rejectsNegativeTtl() {
+        assertThatThrownBy(() -> new ExpenseResponseCache(true, 100, 1000, -1,
+                new StaticListableBeanFactory().getBeanProvider(ExpenseResponseStore.class), meterRegistry))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("expense.cache.ttl-seconds");
+    }
+
+    private ExpenseResponse load(Long id, String category) {
+        loads.incrementAndGet();
+        ExpenseResponse response = new ExpenseResponse();
+        response.setId(id);
+        response.setCategory(category);
+        return response;
+    }
+
+    private static Expense expense(Long id, String category) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setCategory(category);
+        return expense;
+    }
+}
@@ -0,0 +1,202 @@
+package service;
+
+import model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+import repo.ExpenseRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.anything;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /api/expenses must not keep a pooled database connection checked out while it waits on Claude: the
+ * categorization runs first, and only the inserts run in a transaction.
+ */
+@SpringBootTest(properties = {
+        "categorization.async.enabled=false",
+        "categorization.outbox.enabled=false",
+        "categorization.cache.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+class ExpenseServiceConnectionHoldTest {
+
+    private static final Duration CLAUDE_LATENCY = Duration.ofMillis(800);
+
+    private static final String CLAUDE_RESPONSE = """
+            {"id":"msg_1","type":"message","role":"assistant","model":"claude","stop_reason":"end_turn",
+             "content":[{"type":"text","text":"{\\"c\\":\\"SH\\",\\"s\\":\\"General\\",\\"m\\":\\"Qzx\\",\\"p\\":0.9}"}],
+             "usage":{"input_tokens":10,"output_tokens":10}}
+            """;
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @ComponentScan(basePackages = {"controller", "service", "config", "exception"},
+            excludeFilters = @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class))
+    @EntityScan(basePackageClasses = Expense.class)
+    @EnableJpaRepositories(basePackageClasses = ExpenseRepository.class)
+    static class TestConfig {
+
+        @Bean
+        static BeanPostProcessor connectionTrackingPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof ConnectionTracker)
+                            ? new ConnectionTracker(dataSource)
+                            : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private ConnectionTracker tracker;
+    private MockRestServiceServer claude;
+    private final List<Integer> heldDuringClaudeCall = new CopyOnWriteArrayList<>();
+    private final List<Boolean> transactionDuringClaudeCall = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        tracker = (ConnectionTracker) dataSource;
+        claude = MockRestServiceServer.bindTo(restTemplate).build();
+        claude.expect(ExpectedCount.once(), anything()).andRespond(request -> {
+            // Runs on the request thread, in the middle of the outbound call
+            heldDuringClaudeCall.add(tracker.heldBy(Thread.currentThread()));
+            transactionDuringClaudeCall.add(TransactionSynchronizationManager.isActualTransactionActive());
+            try {
+                Thread.sleep(CLAUDE_LATENCY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return withSuccess(CLAUDE_RESPONSE, MediaType.APPLICATION_JSON).createResponse(request);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        claude.reset();
+    }
+
+    @Test
+    void createExpenseHoldsNoConnectionDuringClaudeCall() throws Exception {
+        Thread requestThread = Thread.currentThread();
+        tracker.reset();
+
+        mockMvc.perform(post("/api/expenses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"description\":\"QZX TRADING 4471\",\"amount\":42.50}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.category").value("Shopping"));
+
+        claude.verify();
+        assertThat(heldDuringClaudeCall).containsExactly(0);
+        assertThat(transactionDuringClaudeCall).containsExactly(false);
+
+        // The insert transaction is the only borrow; none may last anywhere near the Claude round-trip
+        List<Duration> holds = tracker.holdsBy(requestThread);
+        assertThat(holds).isNotEmpty();
+        assertThat(holds).allSatisfy(hold -> assertThat(hold).isLessThan(CLAUDE_LATENCY.dividedBy(4)));
+        assertThat(tracker.heldBy(requestThread)).isZero();
+    }
+
+    // Counts the connections each thread has checked out and records how long each borrow lasted
+    static class ConnectionTracker extends DelegatingDataSource {
+
+        private final Map<Thread, AtomicInteger> held = new ConcurrentHashMap<>();
+        private final Map<Thread, List<Duration>> holds = new ConcurrentHashMap<>();
+
+        ConnectionTracker(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return track(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return track(super.getConnection(username, password));
+        }
+
+        int heldBy(Thread thread) {
+            AtomicInteger count = held.get(thread);
+            return count == null ? 0 : count.get();
+        }
+
+        List<Duration> holdsBy(Thread thread) {
+            return holds.getOrDefault(thread, List.of());
+        }
+
+        void reset() {
+            holds.clear();
+        }
+
+        private Connection track(Connection connection) {
+            Thread borrower = Thread.currentThread();
+            long borrowedAt = System.nanoTime();
+            AtomicBoolean closed = new AtomicBoolean();
+            held.computeIfAbsent(borrower, thread -> new AtomicInteger()).incrementAndGet();
+
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                            held.get(borrower).decrementAndGet();
+                            holds.computeIfAbsent(borrower, thread -> new CopyOnWriteArrayList<>())
+                                    .add(Duration.ofNanos(System.nanoTime() - borrowedAt));
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
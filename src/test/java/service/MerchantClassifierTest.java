@@ -0,0 +1,109 @@
+package service;
+
+import dto.AiCategorizationResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dictionary patterns match whole words of the normalized description, the longest match wins, and rules below
+ * min-confidence never answer.
+ */
+class MerchantClassifierTest {
+
+    private static final double MIN_CONFIDENCE = 0.85;
+
+    private final MerchantClassifier classifier =
+            new MerchantClassifier(true, MIN_CONFIDENCE, new ClassPathResource("merchant-dictionary.csv"));
+
+    @Test
+    void matchesWholeWordsOnly() {
+        assertThat(merchantOf("SHELL OIL 57444 SAN JOSE")).isEqualTo("Shell");
+        assertThat(classifier.classify("SHELLFISH SHACK")).isEmpty();
+        assertThat(classifier.classify("CAT&TAIL NURSERY")).isEmpty();
+    }
+
+    @Test
+    void longestMatchWins() {
+        AiCategorizationResult eats = classifier.classify("UBER EATS 8812 HELP.UBER.COM").orElseThrow();
+        assertThat(eats.getCategory()).isEqualTo("Food & Dining");
+        assertThat(eats.getMerchantName()).isEqualTo("Uber Eats");
+
+        AiCategorizationResult ride = classifier.classify("UBER *PENDING 8812").orElseThrow();
+        assertThat(ride.getCategory()).isEqualTo("Transportation");
+        assertThat(ride.getMerchantName()).isEqualTo("Uber");
+    }
+
+    @Test
+    void keepsAmpersandsInPatterns() {
+        Optional<AiCategorizationResult> result = classifier.classify("AT&T*BILL PAYMENT 800-331-0500");
+
+        assertThat(result).get().extracting(AiCategorizationResult::getCategory).isEqualTo("Bills & Utilities");
+        assertThat(result.get().getMerchantName()).isEqualTo("AT&T");
+    }
+
+    @Test
+    void rulesBelowMinConfidenceNeitherAnswerNorHideOthers() {
+        MerchantClassifier strict = new MerchantClassifier(true, MIN_CONFIDENCE, dictionary("""
+                SUBWAY,Food & Dining,Fast Food,Subway,0.8
+                MTA,Transportation,Public Transit,MTA,0.88
+                """));
+        assertThat(strict.classify("SUBWAY 00412")).isEmpty();
+        assertThat(strict.classify("MTA SUBWAY 00412")).get()
+                .extracting(AiCategorizationResult::getMerchantName).isEqualTo("MTA");
+
+        assertThat(classifier.classify("SUBWAY 00412")).isEmpty();
+        assertThat(merchantOf("MTA*NYCT PAYGO SUBWAY")).isEqualTo("MTA");
+    }
+
+    @Test
+    void duplicatePatternKeepsTheMoreConfidentRule() {
+        MerchantClassifier duplicates = new MerchantClassifier(true, MIN_CONFIDENCE, dictionary("""
+                # comment lines and malformed lines are skipped
+                ACME,Shopping,General,Acme,0.9
+                ACME,Home & Garden,Hardware,Acme Hardware,0.95
+                BROKEN,Shopping
+                """));
+
+        assertThat(duplicates.size()).isEqualTo(1);
+        assertThat(duplicates.classify("ACME 12345")).get()
+                .extracting(AiCategorizationResult::getCategory).isEqualTo("Home & Garden");
+    }
+
+    @Test
+    void dictionaryLargerThanTheInitialAutomaton() {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            csv.append(pattern(i)).append(",Shopping,General,Merchant ").append(i).append(",0.9\n");
+        }
+        MerchantClassifier large = new MerchantClassifier(true, MIN_CONFIDENCE, dictionary(csv.toString()));
+
+        assertThat(large.size()).isEqualTo(2000);
+        for (int i = 0; i < 2000; i += 97) {
+            assertThat(large.classify("POS " + pattern(i) + " #123")).get()
+                    .extracting(AiCategorizationResult::getMerchantName).isEqualTo("Merchant " + i);
+        }
+    }
+
+    // Distinct letter-only patterns that share few prefixes, so the trie needs thousands of states
+    private static String pattern(int i) {
+        StringBuilder pattern = new StringBuilder();
+        for (int n = i + 1; n > 0; n /= 26) {
+            pattern.append((char) ('A' + n % 26));
+        }
+        return pattern.append("MART").toString();
+    }
+
+    private String merchantOf(String description) {
+        return classifier.classify(description).orElseThrow().getMerchantName();
+    }
+
+    private static ByteArrayResource dictionary(String csv) {
+        return new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
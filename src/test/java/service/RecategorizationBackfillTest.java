@@ -0,0 +1,270 @@
+package service;
+
+import dto.RecategorizationRunResponse;
+import model.CategorizationStatus;
+import model.Expense;
+import model.RecategorizationRunStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+import repo.ExpenseRepository;
+import repo.RecategorizationRunRepository;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.anything;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * A re-categorization run only moves its checkpoint past expenses it has a real answer for, resumes from the
+ * checkpoint, applies nothing once it has lost its claim, and is the only unfinished run however starts race.
+ */
+@SpringBootTest(properties = {
+        // Its own database, so no scheduled poll of another cached test context claims these runs, and a Claude
+        // URL nothing listens on, so a call that misses the mock server fails instead of reaching the real API
+        "spring.datasource.url=jdbc:h2:mem:recategorization-backfill-test",
+        "anthropic.api.url=http://localhost:0/v1/messages",
+        "categorization.async.enabled=false",
+        "categorization.outbox.enabled=false",
+        "categorization.backfill.batch-size=2",
+        "categorization.backfill.concurrency=2",
+        "categorization.backfill.reserved-claude-calls=0",
+        "categorization.backfill.max-expenses-per-second=100",
+        "categorization.backfill.poll-interval-ms=3600000",
+        "categorization.backfill.stale-after-seconds=1",
+        "categorization.backfill.max-fallback-retries=2",
+        "spring.jpa.show-sql=false"
+})
+class RecategorizationBackfillTest {
+
+    // Compact batch prompt lines: index|description|$amount
+    private static final Pattern PROMPT_LINE = Pattern.compile("(\\d+)\\|(QZX [A-Z]+)\\|\\$");
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @ComponentScan(basePackages = {"controller", "service", "config", "exception"},
+            excludeFilters = @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class))
+    @EntityScan(basePackageClasses = Expense.class)
+    @EnableJpaRepositories(basePackageClasses = ExpenseRepository.class)
+    static class TestConfig {
+    }
+
+    @Autowired
+    private RecategorizationBackfill backfill;
+
+    @Autowired
+    private RecategorizationRunRepository runRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MockRestServiceServer claude;
+    private final Set<String> unanswered = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger claudeCalls = new AtomicInteger();
+    private volatile CountDownLatch claudeReleased = new CountDownLatch(0);
+
+    @BeforeEach
+    void setUp() {
+        claude = MockRestServiceServer.bindTo(restTemplate).build();
+        claude.expect(ExpectedCount.manyTimes(), anything()).andRespond(this::answer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Nothing is left to claim, and the scan still going has had all its Claude calls answered, before the
+        // mock server lets go of the RestTemplate
+        for (var run : runRepository.findAll()) {
+            if (run.getStatus() == RecategorizationRunStatus.RUNNING
+                    || run.getStatus() == RecategorizationRunStatus.PAUSED) {
+                backfill.cancel(run.getId());
+            }
+        }
+        claudeReleased.countDown();
+        awaitScanFinished();
+        expenseRepository.deleteAll();
+        claude.reset();
+    }
+
+    @Test
+    void checkpointStopsBeforeTheFirstFallbackAndResumesThere() {
+        List<Long> ids = addFailedExpenses("QZX ALPHA", "QZX BRAVO", "QZX CHARLIE", "QZX DELTA", "QZX ECHO");
+        unanswered.add("QZX BRAVO");
+        Long runId = backfill.start(null).getId();
+
+        backfill.claimRuns();
+        awaitScanFinished();
+
+        // CHARLIE and DELTA were answered in the same window, but the checkpoint can't pass BRAVO
+        assertThat(categoriesOf(ids)).containsExactly("Shopping", "Other", "Other", "Other", "Other");
+        RecategorizationRunResponse stalled = backfill.getRun(runId);
+        assertThat(stalled.getStatus()).isEqualTo(RecategorizationRunStatus.RUNNING);
+        assertThat(stalled.getLastExpenseId()).isEqualTo(ids.get(0));
+        assertThat(stalled.getScanned()).isEqualTo(1);
+
+        unanswered.clear();
+        awaitCompleted(runId);
+
+        assertThat(categoriesOf(ids)).containsOnly("Shopping");
+        RecategorizationRunResponse completed = backfill.getRun(runId);
+        assertThat(completed.getLastExpenseId()).isEqualTo(ids.get(4));
+        assertThat(completed.getScanned()).isEqualTo(5);
+        assertThat(completed.getRecategorized()).isEqualTo(5);
+        // Two batches per scan: the stalled one, then one from BRAVO on; anything else would be a call that missed
+        // the mock server and fell back on an I/O error
+        assertThat(claudeCalls).hasValue(4);
+    }
+
+    @Test
+    void passesOverAnExpenseClaudeNeverAnswers() {
+        List<Long> ids = addFailedExpenses("QZX ALPHA", "QZX BRAVO", "QZX CHARLIE");
+        unanswered.add("QZX BRAVO");
+        Long runId = backfill.start(null).getId();
+
+        awaitCompleted(runId);
+
+        assertThat(categoriesOf(ids)).containsExactly("Shopping", "Other", "Shopping");
+        assertThat(expenseRepository.findById(ids.get(1)).orElseThrow().getCategorizationStatus())
+                .isEqualTo(CategorizationStatus.FAILED);
+        // [ALPHA, BRAVO] and [CHARLIE], then [BRAVO, CHARLIE] twice: BRAVO's fallbacks all came from the mock server
+        assertThat(claudeCalls).hasValue(4);
+    }
+
+    @Test
+    void runPausedWhileClaudeIsBusyAppliesNothing() {
+        List<Long> ids = addFailedExpenses("QZX ALPHA", "QZX BRAVO", "QZX CHARLIE");
+        claudeReleased = new CountDownLatch(1);
+        Long runId = backfill.start(null).getId();
+
+        backfill.claimRuns();
+        await().atMost(Duration.ofSeconds(5)).until(() -> claudeCalls.get() > 0);
+        backfill.pause(runId);
+        claudeReleased.countDown();
+        awaitScanFinished();
+
+        assertThat(categoriesOf(ids)).containsOnly("Other");
+        RecategorizationRunResponse paused = backfill.getRun(runId);
+        assertThat(paused.getStatus()).isEqualTo(RecategorizationRunStatus.PAUSED);
+        assertThat(paused.getLastExpenseId()).isZero();
+        assertThat(paused.getScanned()).isZero();
+
+        backfill.resume(runId);
+        awaitCompleted(runId);
+
+        assertThat(categoriesOf(ids)).containsOnly("Shopping");
+    }
+
+    @Test
+    void onlyOneRunIsActiveWhenStartsRace() {
+        Long runId = backfill.start(null).getId();
+
+        // A second start whose active-run check passed before the first one inserted
+        assertThatThrownBy(() -> backfill.create(null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already in progress");
+        assertThat(runRepository.findByStatus(RecategorizationRunStatus.RUNNING)).hasSize(1);
+
+        // A finished run no longer counts
+        backfill.cancel(runId);
+        assertThat(backfill.start(null).getStatus()).isEqualTo(RecategorizationRunStatus.RUNNING);
+    }
+
+    private ClientHttpResponse answer(ClientHttpRequest request) throws IOException {
+        claudeCalls.incrementAndGet();
+        try {
+            claudeReleased.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // A usable item for every expense in the prompt, except the ones Claude is to skip
+        List<String> items = new ArrayList<>();
+        Matcher line = PROMPT_LINE.matcher(((MockClientHttpRequest) request).getBodyAsString());
+        while (line.find()) {
+            if (!unanswered.contains(line.group(2))) {
+                items.add("{\\\"i\\\":" + line.group(1) + ",\\\"c\\\":\\\"SH\\\",\\\"s\\\":\\\"General\\\"," +
+                        "\\\"m\\\":\\\"Qzx\\\",\\\"p\\\":0.95}");
+            }
+        }
+        String body = """
+                {"id":"msg_1","type":"message","role":"assistant","model":"claude","stop_reason":"end_turn",
+                 "content":[{"type":"text","text":"[%s]"}],"usage":{"input_tokens":10,"output_tokens":10}}
+                """.formatted(String.join(",", items));
+        return withSuccess(body, MediaType.APPLICATION_JSON).createResponse(request);
+    }
+
+    // Claims are taken once the previous holder's heartbeat is stale-after-seconds old
+    private void awaitCompleted(Long runId) {
+        await().atMost(Duration.ofSeconds(20)).pollInterval(Duration.ofMillis(250)).until(() -> {
+            backfill.claimRuns();
+            return backfill.getRun(runId).getStatus() == RecategorizationRunStatus.COMPLETED;
+        });
+    }
+
+    private void awaitScanFinished() {
+        await().atMost(Duration.ofSeconds(10)).until(() -> !backfill.isScanning());
+    }
+
+    private List<String> categoriesOf(List<Long> ids) {
+        return ids.stream().map(id -> expenseRepository.findById(id).orElseThrow().getCategory()).toList();
+    }
+
+    private List<Long> addFailedExpenses(String... descriptions) {
+        List<Long> ids = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (String description : descriptions) {
+                Expense expense = new Expense();
+                expense.setDescription(description);
+                expense.setAmount(new BigDecimal("12.00"));
+                expense.setCategory("Other");
+                expense.setSubCategory("Uncategorized");
+                expense.setConfidenceScore(0.0);
+                expense.setCategorizationStatus(CategorizationStatus.FAILED);
+                Expense saved = expenseRepository.save(expense);
+                rollupService.recordAdded(saved);
+                ids.add(saved.getId());
+            }
+        });
+        return ids;
+    }
+}
@@ -0,0 +1,167 @@
+package service;
+
+import model.CategorizationStatus;
+import model.CategoryMonthlyRollup;
+import model.CategoryMonthlyRollupId;
+import model.Expense;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repo.CategoryMonthlyRollupRepository;
+import repo.ExpenseRepository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The rollup rebuild repairs real drift, and never undoes a delta that commits while it is reading: it does not
+ * block writers, so writes land between its reads of the rollups and of the expenses.
+ */
+@SpringBootTest(properties = {
+        "categorization.async.enabled=false",
+        "categorization.outbox.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+class RollupServiceRebuildTest {
+
+    // Run on each side of the rebuild's read of the expense totals
+    private static volatile Runnable beforeExpenseTotals = () -> { };
+    private static volatile Runnable afterExpenseTotals = () -> { };
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @ComponentScan(basePackages = {"controller", "service", "config", "exception"},
+            excludeFilters = @ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class))
+    @EntityScan(basePackageClasses = Expense.class)
+    @EnableJpaRepositories(basePackageClasses = ExpenseRepository.class)
+    static class TestConfig {
+
+        @Bean
+        static BeanPostProcessor expenseTotalsHook() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof ExpenseRepository repository)) {
+                        return bean;
+                    }
+                    return Proxy.newProxyInstance(ExpenseRepository.class.getClassLoader(),
+                            new Class<?>[]{ExpenseRepository.class}, (proxy, method, args) -> {
+                                boolean hooked = "getMonthlyCategorySummary".equals(method.getName());
+                                if (hooked) {
+                                    beforeExpenseTotals.run();
+                                }
+                                try {
+                                    return method.invoke(repository, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                } finally {
+                                    if (hooked) {
+                                        afterExpenseTotals.run();
+                                    }
+                                }
+                            });
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private CategoryMonthlyRollupRepository rollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        beforeExpenseTotals = () -> { };
+        afterExpenseTotals = () -> { };
+    }
+
+    @Test
+    void repairsDrift() {
+        addExpense("Drift", "10.00");
+        jdbcTemplate.update("UPDATE category_monthly_rollups SET total_amount = 999, expense_count = 7 " +
+                "WHERE category = 'Drift'");
+
+        assertThat(rollupService.rebuild()).isEqualTo(1);
+
+        assertRollup("Drift", "10.00", 1);
+    }
+
+    @Test
+    void scheduledRebuildRepairsDrift() {
+        addExpense("Scheduled", "10.00");
+        jdbcTemplate.update("UPDATE category_monthly_rollups SET total_amount = 999, expense_count = 7 " +
+                "WHERE category = 'Scheduled'");
+        jdbcTemplate.update("INSERT INTO category_monthly_rollups " +
+                "(year_month, category, total_amount, expense_count, updated_at) " +
+                "VALUES ('2024-03', 'Orphan', 3, 1, CURRENT_TIMESTAMP)");
+
+        rollupService.scheduledRebuild();
+
+        assertRollup("Scheduled", "10.00", 1);
+        assertThat(rollupRepository.findById(new CategoryMonthlyRollupId("2024-03", "Orphan"))).isEmpty();
+    }
+
+    @Test
+    void keepsDeltasCommittedWhileRebuilding() {
+        addExpense("Race", "10.00");
+        beforeExpenseTotals = () -> addExpenseConcurrently("Race", "5.00");
+        afterExpenseTotals = () -> addExpenseConcurrently("Race", "7.00");
+
+        rollupService.rebuild();
+
+        assertRollup("Race", "22.00", 3);
+    }
+
+    private void assertRollup(String category, String amount, long count) {
+        CategoryMonthlyRollup rollup = rollupRepository.findById(new CategoryMonthlyRollupId("2024-03", category))
+                .orElseThrow();
+        assertThat(rollup.getTotalAmount()).isEqualByComparingTo(amount);
+        assertThat(rollup.getExpenseCount()).isEqualTo(count);
+    }
+
+    // Commits on another thread, as a request would while the rebuild's transaction is open
+    private void addExpenseConcurrently(String category, String amount) {
+        CompletableFuture.runAsync(() -> addExpense(category, amount)).join();
+    }
+
+    private void addExpense(String category, String amount) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Expense expense = new Expense();
+            expense.setDescription("CORNER SHOP");
+            expense.setAmount(new BigDecimal(amount));
+            expense.setCategory(category);
+            expense.setTransactionDate(LocalDateTime.of(2024, 3, 5, 10, 0));
+            expense.setCategorizationStatus(CategorizationStatus.CATEGORIZED);
+            rollupService.recordAdded(expenseRepository.save(expense));
+        });
+    }
+}